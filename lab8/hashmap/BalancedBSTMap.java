@@ -0,0 +1,303 @@
+package hashmap;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ *  A BSTMap kept balanced as a left-leaning red-black tree, so that get(),
+ *  put() and remove() take O(log N) time whatever order the keys come in.
+ *
+ *  A red link joins a node to its parent as if they were one node of a 2-3
+ *  tree.  Red links only lean left, no node has two red links, and every
+ *  path from the root to a null link has as many black links, so no path
+ *  is more than twice as long as another.  put() and remove() restore this
+ *  with rotations and color flips on the way back up from the key.
+ *
+ *  Iterates over its keys in order.
+ *  @author Colin Wang
+ */
+public class BalancedBSTMap<K extends Comparable<K>, V> implements Map61B<K, V> {
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    private BSTNode root;
+    private int size = 0;
+
+    public void clear() {
+        size = 0;
+        root = null;
+    }
+
+    public boolean containsKey(K key) {
+        return getNode(key) != null;
+    }
+
+    public V get(K key) {
+        BSTNode node = getNode(key);
+        if (node == null) {
+            return null;
+        }
+        return node.val;
+    }
+
+    private BSTNode getNode(K key) {
+        BSTNode node = root;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void put(K key, V value) {
+        root = put(root, key, value);
+        root.color = BLACK;
+    }
+
+    private BSTNode put(BSTNode node, K key, V value) {
+        if (node == null) {
+            size += 1;
+            return new BSTNode(key, value);
+        }
+        int cmp = key.compareTo(node.key);
+        if (cmp < 0) {
+            node.left = put(node.left, key, value);
+        } else if (cmp > 0) {
+            node.right = put(node.right, key, value);
+        } else {
+            node.val = value;
+        }
+        return balance(node);
+    }
+
+    public Set<K> keySet() {
+        HashSet<K> set = new HashSet<>();
+        for (K key : this) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    public V remove(K key) {
+        BSTNode node = getNode(key);
+        if (node == null) {
+            return null;
+        }
+        V value = node.val;
+        removeNode(key);
+        return value;
+    }
+
+    public V remove(K key, V value) {
+        BSTNode node = getNode(key);
+        if (node == null || !node.val.equals(value)) {
+            return null;
+        }
+        V targetValue = node.val;
+        removeNode(key);
+        return targetValue;
+    }
+
+    /** Removes KEY, which is in the tree. */
+    private void removeNode(K key) {
+        // Make the root red for the way down, so that there is a red link
+        // to borrow from.
+        if (!isRed(root.left) && !isRed(root.right)) {
+            root.color = RED;
+        }
+        root = remove(root, key);
+        if (root != null) {
+            root.color = BLACK;
+        }
+        size -= 1;
+    }
+
+    /**
+     * Removes KEY from the subtree NODE and returns the new subtree.  On the
+     * way down, the node gone into is always red or has a red left child,
+     * so the node finally removed is never a lone black node.
+     */
+    private BSTNode remove(BSTNode node, K key) {
+        if (key.compareTo(node.key) < 0) {
+            if (!isRed(node.left) && !isRed(node.left.left)) {
+                node = moveRedLeft(node);
+            }
+            node.left = remove(node.left, key);
+        } else {
+            if (isRed(node.left)) {
+                node = rotateRight(node);
+            }
+            if (key.compareTo(node.key) == 0 && node.right == null) {
+                return null;
+            }
+            if (!isRed(node.right) && !isRed(node.right.left)) {
+                node = moveRedRight(node);
+            }
+            if (key.compareTo(node.key) == 0) {
+                BSTNode min = getMinChild(node.right);
+                node.key = min.key;
+                node.val = min.val;
+                node.right = removeMin(node.right);
+            } else {
+                node.right = remove(node.right, key);
+            }
+        }
+        return balance(node);
+    }
+
+    private BSTNode removeMin(BSTNode node) {
+        if (node.left == null) {
+            return null;
+        }
+        if (!isRed(node.left) && !isRed(node.left.left)) {
+            node = moveRedLeft(node);
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private BSTNode getMinChild(BSTNode node) {
+        if (node.left == null) {
+            return node;
+        }
+        return getMinChild(node.left);
+    }
+
+    private static boolean isRed(BalancedBSTMap<?, ?>.BSTNode node) {
+        return node != null && node.color == RED;
+    }
+
+    private BSTNode rotateLeft(BSTNode node) {
+        BSTNode x = node.right;
+        node.right = x.left;
+        x.left = node;
+        x.color = node.color;
+        node.color = RED;
+        return x;
+    }
+
+    private BSTNode rotateRight(BSTNode node) {
+        BSTNode x = node.left;
+        node.left = x.right;
+        x.right = node;
+        x.color = node.color;
+        node.color = RED;
+        return x;
+    }
+
+    private void flipColors(BSTNode node) {
+        node.color = !node.color;
+        node.left.color = !node.left.color;
+        node.right.color = !node.right.color;
+    }
+
+    /** Makes the left child of NODE or one of its children red, assuming
+     *  NODE is red and both its children are black. */
+    private BSTNode moveRedLeft(BSTNode node) {
+        flipColors(node);
+        if (isRed(node.right.left)) {
+            node.right = rotateRight(node.right);
+            node = rotateLeft(node);
+            flipColors(node);
+        }
+        return node;
+    }
+
+    /** Makes the right child of NODE or one of its children red, assuming
+     *  NODE is red and both its children are black. */
+    private BSTNode moveRedRight(BSTNode node) {
+        flipColors(node);
+        if (isRed(node.left.left)) {
+            node = rotateRight(node);
+            flipColors(node);
+        }
+        return node;
+    }
+
+    /** Restores the red-black rules at NODE, whose subtrees follow them. */
+    private BSTNode balance(BSTNode node) {
+        if (isRed(node.right) && !isRed(node.left)) {
+            node = rotateLeft(node);
+        }
+        if (isRed(node.left) && isRed(node.left.left)) {
+            node = rotateRight(node);
+        }
+        if (isRed(node.left) && isRed(node.right)) {
+            flipColors(node);
+        }
+        return node;
+    }
+
+    /** Returns the number of nodes on the longest path from the root. */
+    int height() {
+        return height(root);
+    }
+
+    private int height(BSTNode node) {
+        if (node == null) {
+            return 0;
+        }
+        return 1 + Math.max(height(node.left), height(node.right));
+    }
+
+    public Iterator<K> iterator() {
+        return new BalancedBSTMapIterator();
+    }
+
+    /** Goes through the keys in order, keeping the nodes whose left
+     *  subtrees it is in on a stack. */
+    private class BalancedBSTMapIterator implements Iterator<K> {
+        private final Deque<BSTNode> stack = new ArrayDeque<>();
+
+        BalancedBSTMapIterator() {
+            pushLeft(root);
+        }
+
+        private void pushLeft(BSTNode node) {
+            for (; node != null; node = node.left) {
+                stack.push(node);
+            }
+        }
+
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BSTNode node = stack.pop();
+            pushLeft(node.right);
+            return node.key;
+        }
+    }
+
+    private class BSTNode {
+        public K key;
+        public V val;
+        public BSTNode left;
+        public BSTNode right;
+        /** The color of the link from the parent. */
+        public boolean color = RED;
+
+        BSTNode(K k, V v) {
+            key = k;
+            val = v;
+        }
+    }
+}
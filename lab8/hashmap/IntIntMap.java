@@ -0,0 +1,267 @@
+package hashmap;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ *  A hash map from int to int that stores its keys and values in two int
+ *  arrays, with no boxing and no objects per entry.  Its Map61B methods
+ *  box their arguments and results; the int methods do not.
+ *
+ *  Keys go in the first free slot at or after their home slot (linear
+ *  probing), and remove() shifts the entries after the removed one back
+ *  (backward-shift deletion).  The table length is a power of two, so the
+ *  home slot is the low bits of the hash, and the hash is the murmur3
+ *  finalizer of the key, which spreads every bit of it over those bits.
+ *
+ *  Key 0 marks an empty slot, so a 0 key is kept apart from the table.
+ *
+ *  Does not resize down upon remove().
+ *  @author Colin Wang
+ */
+public class IntIntMap implements Map61B<Integer, Integer> {
+    private static final int DEFAULT_INITIALSIZE = 16;
+    private static final double DEFAULT_LOADFACTOR = 0.75;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    /** The number of keys in the table, so not counting key 0. */
+    private int used;
+    /** The size at which the table doubles. */
+    private int threshold;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private final double maxloadfactor;
+
+    /** Constructors */
+    public IntIntMap() {
+        this(DEFAULT_INITIALSIZE, DEFAULT_LOADFACTOR);
+    }
+
+    public IntIntMap(int initialSize) {
+        this(initialSize, DEFAULT_LOADFACTOR);
+    }
+
+    /**
+     * IntIntMap constructor that creates a table of at least initialSize
+     * slots.  The load factor (# items / # slots) is kept <= maxLoad, and
+     * always below 1.
+     *
+     * @param initialSize initial size of the table
+     * @param maxLoad maximum load factor
+     */
+    public IntIntMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        maxloadfactor = maxLoad;
+        createTable(tableSizeFor(initialSize));
+    }
+
+    /** Returns the smallest power of two that is at least N and at least 2. */
+    private static int tableSizeFor(int n) {
+        int size = 2;
+        while (size < n) {
+            size *= 2;
+        }
+        return size;
+    }
+
+    private void createTable(int tableSize) {
+        keys = new int[tableSize];
+        values = new int[tableSize];
+        mask = tableSize - 1;
+        threshold = (int) Math.min(tableSize - 1, tableSize * maxloadfactor);
+    }
+
+    /** The murmur3 32-bit finalizer. */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /** Returns the slot holding KEY, which is not 0, or -1 if it is not
+     *  in the map. */
+    private int find(int key) {
+        for (int slot = mix(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void clear() {
+        used = 0;
+        hasZeroKey = false;
+        createTable(DEFAULT_INITIALSIZE);
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? hasZeroKey : find(key) >= 0;
+    }
+
+    /** Returns the value of KEY, or DEFAULTVALUE if KEY is not in the map. */
+    public int get(int key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public int size() {
+        return used + (hasZeroKey ? 1 : 0);
+    }
+
+    public void put(int key, int value) {
+        if (key == 0) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        while (used + 1 > threshold) {
+            resize(keys.length * 2);
+        }
+        insert(key, value);
+        used += 1;
+    }
+
+    /** Puts KEY, which is neither 0 nor in the table, in with VALUE. */
+    private void insert(int key, int value) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private void resize(int newsize) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        createTable(newsize);
+        for (int i = 0; i < oldKeys.length; i += 1) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /** Removes KEY and returns true if it was in the map. */
+    public boolean remove(int key) {
+        if (key == 0) {
+            boolean had = hasZeroKey;
+            hasZeroKey = false;
+            return had;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Removes the entry in SLOT and fills the hole with the first following
+     * entry that may move back into it (one whose home slot is not between
+     * the hole and itself), repeating from that entry's old slot up to the
+     * first empty one.
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+        used -= 1;
+    }
+
+    /* Map61B methods, which box their keys and values. */
+
+    public boolean containsKey(Integer key) {
+        return containsKey(key.intValue());
+    }
+
+    public Integer get(Integer key) {
+        return containsKey(key.intValue()) ? get(key.intValue(), 0) : null;
+    }
+
+    public void put(Integer key, Integer value) {
+        put(key.intValue(), value.intValue());
+    }
+
+    public Set<Integer> keySet() {
+        HashSet<Integer> set = new HashSet<>();
+        for (Integer key : this) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    public Integer remove(Integer key) {
+        Integer value = get(key);
+        if (value != null) {
+            remove(key.intValue());
+        }
+        return value;
+    }
+
+    public Integer remove(Integer key, Integer value) {
+        Integer current = get(key);
+        if (current == null || !current.equals(value)) {
+            return null;
+        }
+        remove(key.intValue());
+        return current;
+    }
+
+    public Iterator<Integer> iterator() {
+        return new IntIntMapIterator();
+    }
+
+    private class IntIntMapIterator implements Iterator<Integer> {
+        private int slot = 0;
+        private int leftKeys = size();
+        private boolean zeroKeyLeft = hasZeroKey;
+
+        public boolean hasNext() {
+            return leftKeys > 0;
+        }
+
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            leftKeys -= 1;
+            if (zeroKeyLeft) {
+                zeroKeyLeft = false;
+                return 0;
+            }
+            while (keys[slot] == 0) {
+                slot += 1;
+            }
+            slot += 1;
+            return keys[slot - 1];
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package hashmap;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ *  A hash map from long to objects that stores its keys in a long array
+ *  and its values in an Object array, with no boxing and no objects per
+ *  entry besides the values themselves.  Its Map61B methods box their
+ *  keys; the long methods do not.
+ *
+ *  The table works as in IntIntMap: linear probing, backward-shift
+ *  deletion, a power-of-two length, and the murmur3 64-bit finalizer of
+ *  the key as its hash.  Key 0 marks an empty slot, so a 0 key is kept
+ *  apart from the table.
+ *
+ *  Assumes null values will never be inserted, and does not resize down upon remove().
+ *  @author Colin Wang
+ */
+public class LongObjectMap<V> implements Map61B<Long, V> {
+    private static final int DEFAULT_INITIALSIZE = 16;
+    private static final double DEFAULT_LOADFACTOR = 0.75;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    /** The number of keys in the table, so not counting key 0. */
+    private int used;
+    /** The size at which the table doubles. */
+    private int threshold;
+    /** The value of key 0, or null if it is not in the map. */
+    private V zeroValue;
+    private final double maxloadfactor;
+
+    /** Constructors */
+    public LongObjectMap() {
+        this(DEFAULT_INITIALSIZE, DEFAULT_LOADFACTOR);
+    }
+
+    public LongObjectMap(int initialSize) {
+        this(initialSize, DEFAULT_LOADFACTOR);
+    }
+
+    /**
+     * LongObjectMap constructor that creates a table of at least initialSize
+     * slots.  The load factor (# items / # slots) is kept <= maxLoad, and
+     * always below 1.
+     *
+     * @param initialSize initial size of the table
+     * @param maxLoad maximum load factor
+     */
+    public LongObjectMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        maxloadfactor = maxLoad;
+        createTable(tableSizeFor(initialSize));
+    }
+
+    /** Returns the smallest power of two that is at least N and at least 2. */
+    private static int tableSizeFor(int n) {
+        int size = 2;
+        while (size < n) {
+            size *= 2;
+        }
+        return size;
+    }
+
+    private void createTable(int tableSize) {
+        keys = new long[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+        threshold = (int) Math.min(tableSize - 1, tableSize * maxloadfactor);
+    }
+
+    /** The murmur3 64-bit finalizer, folded to the int whose low bits
+     *  choose the home slot. */
+    private static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /** Returns the slot holding KEY, which is not 0, or -1 if it is not
+     *  in the map. */
+    private int find(long key) {
+        for (int slot = mix(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void clear() {
+        used = 0;
+        zeroValue = null;
+        createTable(DEFAULT_INITIALSIZE);
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? zeroValue != null : find(key) >= 0;
+    }
+
+    /** Returns the value of KEY, or null if KEY is not in the map. */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public int size() {
+        return used + (zeroValue != null ? 1 : 0);
+    }
+
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        if (key == 0) {
+            zeroValue = value;
+            return;
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        while (used + 1 > threshold) {
+            resize(keys.length * 2);
+        }
+        insert(key, value);
+        used += 1;
+    }
+
+    /** Puts KEY, which is neither 0 nor in the table, in with VALUE. */
+    private void insert(long key, Object value) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private void resize(int newsize) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        createTable(newsize);
+        for (int i = 0; i < oldKeys.length; i += 1) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /** Removes KEY and returns its value, or null if it was not in the map. */
+    public V remove(long key) {
+        if (key == 0) {
+            V value = zeroValue;
+            zeroValue = null;
+            return value;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    /**
+     * Removes the entry in SLOT and fills the hole with the first following
+     * entry that may move back into it (one whose home slot is not between
+     * the hole and itself), repeating from that entry's old slot up to the
+     * first empty one.
+     */
+    @SuppressWarnings("unchecked")
+    private V removeSlot(int slot) {
+        V value = (V) values[slot];
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        used -= 1;
+        return value;
+    }
+
+    /* Map61B methods, which box their keys. */
+
+    public boolean containsKey(Long key) {
+        return containsKey(key.longValue());
+    }
+
+    public V get(Long key) {
+        return get(key.longValue());
+    }
+
+    public void put(Long key, V value) {
+        put(key.longValue(), value);
+    }
+
+    public Set<Long> keySet() {
+        HashSet<Long> set = new HashSet<>();
+        for (Long key : this) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    public V remove(Long key) {
+        return remove(key.longValue());
+    }
+
+    public V remove(Long key, V value) {
+        V current = get(key.longValue());
+        if (current == null || !current.equals(value)) {
+            return null;
+        }
+        return remove(key.longValue());
+    }
+
+    public Iterator<Long> iterator() {
+        return new LongObjectMapIterator();
+    }
+
+    private class LongObjectMapIterator implements Iterator<Long> {
+        private int slot = 0;
+        private int leftKeys = size();
+        private boolean zeroKeyLeft = zeroValue != null;
+
+        public boolean hasNext() {
+            return leftKeys > 0;
+        }
+
+        public Long next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            leftKeys -= 1;
+            if (zeroKeyLeft) {
+                zeroKeyLeft = false;
+                return 0L;
+            }
+            while (keys[slot] == 0) {
+                slot += 1;
+            }
+            slot += 1;
+            return keys[slot - 1];
+        }
+    }
+}
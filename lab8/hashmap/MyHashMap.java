@@ -1,11 +1,20 @@
 package hashmap;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  *  A hash table-backed Map implementation. Provides amortized constant time
  *  access to elements via get(), remove(), and put() in the best case.
  *
+ *  In incremental resize mode, growing the table does not rehash every
+ *  entry at once: the old table is kept next to the new one, and each put()
+ *  or remove() moves the next few buckets of the old table over, so no one
+ *  call pays for the whole rehash.  Until a bucket of the old table has been
+ *  moved, the keys that hash to it are looked up, added and removed there.
+ *
+ *  Buckets are created when the first entry goes into them.
+ *
  *  Assumes null keys will never be inserted, and does not resize down upon remove().
  *  @author Colin Wang
  */
@@ -31,7 +40,22 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     private int size = 0;
     private static final int DEFAULT_INITIALSIZE = 16;
     private static final double DEFAULT_LOADFACTOR = 0.75;
+    /** The fewest buckets of the old table each put or remove moves in
+     *  incremental resize mode. */
+    private static final int BUCKETS_MOVED_PER_OPERATION = 4;
     private final double maxloadfactor;
+    private final boolean incrementalResize;
+    /** How many buckets of the old table each put or remove moves.  A
+     *  resize of a table of N buckets starts once it holds maxLoad * N
+     *  entries, and the doubled table is full again after about
+     *  maxLoad * N more puts.  Moving at least 1 / maxLoad buckets per put
+     *  empties the old table within those puts. */
+    private final int bucketsMovedPerOperation;
+    /** While an incremental resize is under way, the table being emptied
+     *  into buckets, or null. */
+    private Collection<Node>[] oldBuckets;
+    /** The buckets of oldBuckets before this one have been moved. */
+    private int moved;
 
 
     /** Constructors */
@@ -51,8 +75,23 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
      * @param maxLoad maximum load factor
      */
     public MyHashMap(int initialSize, double maxLoad) {
+        this(initialSize, maxLoad, false);
+    }
+
+    /**
+     * MyHashMap constructor that creates a backing array of initialSize and,
+     * if incrementalResize, grows it a few buckets at a time.
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     * @param incrementalResize whether to move entries to a larger table
+     *                          over many operations instead of all at once
+     */
+    public MyHashMap(int initialSize, double maxLoad, boolean incrementalResize) {
         buckets = createTable(initialSize);
         maxloadfactor = maxLoad;
+        this.incrementalResize = incrementalResize;
+        bucketsMovedPerOperation = Math.max(BUCKETS_MOVED_PER_OPERATION, (int) Math.ceil(1 / maxLoad));
     }
 
     /**
@@ -88,26 +127,29 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
      * Returns a table to back our hash table. As per the comment
      * above, this table can be an array of Collection objects
      *
-     * BE SURE TO CALL THIS FACTORY METHOD WHEN CREATING A TABLE SO
-     * THAT ALL BUCKET TYPES ARE OF JAVA.UTIL.COLLECTION
+     * Its buckets are null until addNode creates them with createBucket,
+     * so making a large table costs no more than allocating the array.
      *
      * @param tableSize the size of the table to create
      */
     private Collection<Node>[] createTable(int tableSize) {
+        @SuppressWarnings("unchecked")
         Collection<Node>[] table = new Collection[tableSize];
-        for (int i = 0; i < tableSize; i += 1) {
-            table[i] = createBucket();
-        }
         return table;
     }
-    
+
+    /** Adds NODE to bucket INDEX of TABLE, creating the bucket if needed. */
+    private void addNode(Collection<Node>[] table, int index, Node node) {
+        if (table[index] == null) {
+            table[index] = createBucket();
+        }
+        table[index].add(node);
+    }
+
     public void clear() {
         size = 0;
         buckets = createTable(DEFAULT_INITIALSIZE);
-    }
-
-    private int getIndex(K key) {
-        return getIndex(key, buckets);
+        oldBuckets = null;
     }
 
     private int getIndex(K key, Collection<Node>[] table) {
@@ -115,13 +157,30 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
         return Math.floorMod(hashcode, table.length);
     }
 
+    /** Returns the table that holds KEY, if it is in the map: the old one
+     *  if the bucket of KEY there has not been moved yet. */
+    private Collection<Node>[] getTable(K key) {
+        if (oldBuckets != null && getIndex(key, oldBuckets) >= moved) {
+            return oldBuckets;
+        }
+        return buckets;
+    }
+
     private Node getNode(K key) {
-        int index = getIndex(key);
-        return getNode(key, index);
+        Collection<Node>[] table = getTable(key);
+        return getNode(key, table[getIndex(key, table)]);
     }
 
-    private Node getNode(K key, int index) {
-        for (Node node: buckets[index]) {
+    /**
+     * Returns the node of KEY in BUCKET, which may be null, or null if KEY
+     * is not there.  Override this method when the bucket type can find a
+     * key faster than by going through all of its nodes.
+     */
+    protected Node getNode(K key, Collection<Node> bucket) {
+        if (bucket == null) {
+            return null;
+        }
+        for (Node node: bucket) {
             if (node.key.equals(key)) {
                 return node;
             }
@@ -146,14 +205,16 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     }
 
     public void put(K key, V value) {
-        int index = getIndex(key);
-        Node node = getNode(key, index);
+        moveBuckets();
+        Collection<Node>[] table = getTable(key);
+        int index = getIndex(key, table);
+        Node node = getNode(key, table[index]);
         if (node != null) {
             node.value = value;
             return;
         }
         node = createNode(key, value);
-        buckets[index].add(node);
+        addNode(table, index, node);
         size += 1;
         if (reachMaxLoad()) {
             resize(buckets.length * 2);
@@ -161,18 +222,50 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     }
 
     private boolean reachMaxLoad() {
-        return (double) (size / buckets.length) > maxloadfactor;
+        return (double) size / buckets.length > maxloadfactor;
     }
 
     private void resize(int newsize) {
-        Collection<Node>[] newBuckets = createTable(newsize);
-        Iterator<Node> nodeIterator = new MyHashMapNodeIterator();
-        while (nodeIterator.hasNext()) {
-            Node node = nodeIterator.next();
-            int index = getIndex(node.key, newBuckets);
-            newBuckets[index].add(node);
+        if (!incrementalResize) {
+            Collection<Node>[] newBuckets = createTable(newsize);
+            Iterator<Node> nodeIterator = new MyHashMapNodeIterator();
+            while (nodeIterator.hasNext()) {
+                Node node = nodeIterator.next();
+                addNode(newBuckets, getIndex(node.key, newBuckets), node);
+            }
+            buckets = newBuckets;
+            return;
+        }
+        // The last move is over or nearly so (see bucketsMovedPerOperation);
+        // rounding can leave a few buckets, which are moved now.
+        while (oldBuckets != null) {
+            moveBuckets();
+        }
+        oldBuckets = buckets;
+        moved = 0;
+        buckets = createTable(newsize);
+    }
+
+    /** Moves the next bucketsMovedPerOperation buckets of the old table,
+     *  if an incremental resize is under way, into the new one. */
+    private void moveBuckets() {
+        if (oldBuckets == null) {
+            return;
+        }
+        int end = moved + Math.min(bucketsMovedPerOperation, oldBuckets.length - moved);
+        for (; moved < end; moved += 1) {
+            Collection<Node> bucket = oldBuckets[moved];
+            if (bucket == null) {
+                continue;
+            }
+            for (Node node : bucket) {
+                addNode(buckets, getIndex(node.key, buckets), node);
+            }
+            oldBuckets[moved] = null;
+        }
+        if (moved == oldBuckets.length) {
+            oldBuckets = null;
         }
-        buckets = newBuckets;
     }
 
     public Set<K> keySet() {
@@ -184,24 +277,28 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     }
 
     public V remove(K key) {
-        int index = getIndex(key);
-        Node node = getNode(key, index);
+        moveBuckets();
+        Collection<Node>[] table = getTable(key);
+        int index = getIndex(key, table);
+        Node node = getNode(key, table[index]);
         if (node == null) {
             return null;
         }
         size -= 1;
-        buckets[index].remove(node);
+        table[index].remove(node);
         return node.value;
     }
 
     public V remove(K key, V value) {
-        int index = getIndex(key);
-        Node node = getNode(key, index);
+        moveBuckets();
+        Collection<Node>[] table = getTable(key);
+        int index = getIndex(key, table);
+        Node node = getNode(key, table[index]);
         if (node == null || !node.value.equals(value)) {
             return null;
         }
         size -= 1;
-        buckets[index].remove(node);
+        table[index].remove(node);
         return node.value;
     }
 
@@ -221,8 +318,12 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
         }
     }
 
+    /** Iterates over the buckets not yet moved of the old table, if there
+     *  is one, and then over the current table. */
     private class MyHashMapNodeIterator implements Iterator<Node> {
-        private final Iterator<Collection<Node>> bucketsIterator = Arrays.stream(buckets).iterator();
+        private final Iterator<Collection<Node>> bucketsIterator = (oldBuckets == null
+                ? Arrays.stream(buckets) : Stream.concat(Arrays.stream(oldBuckets), Arrays.stream(buckets)))
+                .iterator();
         private Iterator<Node> currentBucketIterator;
         private int leftNode = size;
 
@@ -233,7 +334,7 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
         public Node next() {
             if (currentBucketIterator == null || !currentBucketIterator.hasNext()) {
                 Collection<Node> currentBucket = bucketsIterator.next();
-                while (currentBucket.size() == 0) {
+                while (currentBucket == null || currentBucket.size() == 0) {
                     currentBucket = bucketsIterator.next();
                 }
                 currentBucketIterator = currentBucket.iterator();
@@ -0,0 +1,366 @@
+package hashmap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *  A hash table-backed Map implementation that many threads may use at
+ *  once.
+ *
+ *  Writers lock one of STRIPES locks, chosen by the low bits of the bucket
+ *  index, so writers to different stripes never wait for each other.
+ *  Readers take no lock at all: a chain only ever changes by having a node
+ *  put at its head, unlinked, or given a new value, each a single volatile
+ *  write, so a reader walking it sees either the old or the new chain.
+ *
+ *  The table never has fewer buckets than there are stripes, so when it
+ *  doubles, bucket i splits into buckets i and i + n of the new table,
+ *  which have the same stripe as i.  Growing the table is thus done one
+ *  bucket at a time under that bucket's own lock: the nodes of the bucket
+ *  are copied into the new table and a forwarding node put in its place,
+ *  which sends readers and writers that come to it on to the new table.
+ *  Each put() and remove() during a resize moves the next few buckets
+ *  over, so no thread stops the others to rehash the whole map.
+ *
+ *  size() and the iterator are not atomic: they see each stripe or bucket
+ *  as it is when they come to it, and so does clear(), which removes the
+ *  keys it sees.
+ *
+ *  Assumes null keys and values will never be inserted, and does not
+ *  resize down upon remove().
+ *  @author Colin Wang
+ */
+public class MyHashMapConcurrent<K, V> implements Map61B<K, V> {
+
+    /** A key/value pair in a bucket's chain.  Only the value and the link
+     *  to the next node change once the node is in a table. */
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int h, K k, V v, Node<K, V> n) {
+            hash = h;
+            key = k;
+            value = v;
+            next = n;
+        }
+    }
+
+    /** Stands in for a bucket whose nodes have been moved to TABLE. */
+    private static class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> table;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> t) {
+            super(MOVED, null, null, null);
+            table = t;
+        }
+    }
+
+    /** A lock and the number of keys in the buckets it guards. */
+    private static class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        /** Only changed while holding LOCK. */
+        volatile int count;
+    }
+
+    /** A resize under way, from the table FROM into the table TO. */
+    private static class Resize<K, V> {
+        final AtomicReferenceArray<Node<K, V>> from;
+        final AtomicReferenceArray<Node<K, V>> to;
+        /** The buckets of FROM before this one have been claimed. */
+        final AtomicInteger claimed = new AtomicInteger();
+        final AtomicInteger moved = new AtomicInteger();
+
+        Resize(AtomicReferenceArray<Node<K, V>> f) {
+            from = f;
+            to = new AtomicReferenceArray<>(f.length() * 2);
+        }
+    }
+
+    private static final int DEFAULT_INITIALSIZE = 16;
+    private static final double DEFAULT_LOADFACTOR = 0.75;
+    /** The number of locks, a power of two. */
+    private static final int STRIPES = 64;
+    /** How many buckets of the old table each put or remove moves while
+     *  the table grows. */
+    private static final int BUCKETS_MOVED_PER_OPERATION = 16;
+    /** The hash of a forwarding node.  Keys' hashes are never negative. */
+    private static final int MOVED = -1;
+
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    /** The resize under way, or null. */
+    private volatile Resize<K, V> resize;
+    /** Held to start a resize, so that only one is ever under way. */
+    private final Object resizeLock = new Object();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final double maxloadfactor;
+
+    /** Constructors */
+    public MyHashMapConcurrent() {
+        this(DEFAULT_INITIALSIZE, DEFAULT_LOADFACTOR);
+    }
+
+    public MyHashMapConcurrent(int initialSize) {
+        this(initialSize, DEFAULT_LOADFACTOR);
+    }
+
+    /**
+     * MyHashMapConcurrent constructor that creates a backing array of at
+     * least initialSize, and never fewer than STRIPES, buckets.  The load
+     * factor (# items / # buckets) of each stripe is kept <= maxLoad.
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapConcurrent(int initialSize, double maxLoad) {
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        maxloadfactor = maxLoad;
+        int tableSize = STRIPES;
+        while (tableSize < initialSize) {
+            tableSize *= 2;
+        }
+        table = new AtomicReferenceArray<>(tableSize);
+        for (int i = 0; i < STRIPES; i += 1) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /** Returns the hash of KEY, with the high bits of hashCode() folded
+     *  into the low ones that choose the bucket, and never negative. */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    private static Stripe stripeOf(Stripe[] stripes, int index) {
+        return stripes[index & (STRIPES - 1)];
+    }
+
+    /** Returns the node of KEY, whose hash is H, or null, without locking. */
+    private Node<K, V> getNode(K key, int h) {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        Node<K, V> e = tab.get(h & (tab.length() - 1));
+        while (e != null) {
+            if (e instanceof ForwardingNode) {
+                tab = ((ForwardingNode<K, V>) e).table;
+                e = tab.get(h & (tab.length() - 1));
+                continue;
+            }
+            if (e.hash == h && key.equals(e.key)) {
+                return e;
+            }
+            e = e.next;
+        }
+        return null;
+    }
+
+    public boolean containsKey(K key) {
+        return getNode(key, hash(key)) != null;
+    }
+
+    public V get(K key) {
+        Node<K, V> node = getNode(key, hash(key));
+        return node == null ? null : node.value;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.count;
+        }
+        return size;
+    }
+
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        int h = hash(key);
+        helpResize();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            int index = h & (tab.length() - 1);
+            Stripe stripe = stripeOf(stripes, index);
+            stripe.lock.lock();
+            try {
+                Node<K, V> first = tab.get(index);
+                if (first instanceof ForwardingNode) {
+                    tab = ((ForwardingNode<K, V>) first).table;
+                    continue;
+                }
+                for (Node<K, V> e = first; e != null; e = e.next) {
+                    if (e.hash == h && key.equals(e.key)) {
+                        e.value = value;
+                        return;
+                    }
+                }
+                tab.set(index, new Node<>(h, key, value, first));
+                stripe.count += 1;
+                if (stripe.count > tab.length() * maxloadfactor / STRIPES) {
+                    startResize(tab);
+                }
+                return;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public V remove(K key) {
+        return removeNode(key, null);
+    }
+
+    public V remove(K key, V value) {
+        return removeNode(key, value);
+    }
+
+    /** Removes KEY if it is in the map and, unless VALUE is null, mapped to
+     *  VALUE, and returns its value, or null if it was not removed. */
+    private V removeNode(K key, V value) {
+        int h = hash(key);
+        helpResize();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            int index = h & (tab.length() - 1);
+            Stripe stripe = stripeOf(stripes, index);
+            stripe.lock.lock();
+            try {
+                Node<K, V> first = tab.get(index);
+                if (first instanceof ForwardingNode) {
+                    tab = ((ForwardingNode<K, V>) first).table;
+                    continue;
+                }
+                Node<K, V> prev = null;
+                for (Node<K, V> e = first; e != null; prev = e, e = e.next) {
+                    if (e.hash == h && key.equals(e.key)) {
+                        V current = e.value;
+                        if (value != null && !value.equals(current)) {
+                            return null;
+                        }
+                        if (prev == null) {
+                            tab.set(index, e.next);
+                        } else {
+                            prev.next = e.next;
+                        }
+                        stripe.count -= 1;
+                        return current;
+                    }
+                }
+                return null;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /** Starts doubling TAB, which is full, unless it is no longer the table
+     *  or a resize is already under way. */
+    private void startResize(AtomicReferenceArray<Node<K, V>> tab) {
+        synchronized (resizeLock) {
+            // table is changed before resize is cleared, so if there is no
+            // resize and tab is still the table, tab has not been grown.
+            if (resize == null && table == tab) {
+                resize = new Resize<>(tab);
+            }
+        }
+    }
+
+    /** Moves the next BUCKETS_MOVED_PER_OPERATION buckets of the resize
+     *  under way, if any, and makes its new table the table once all of
+     *  them have been. */
+    private void helpResize() {
+        Resize<K, V> r = resize;
+        if (r == null) {
+            return;
+        }
+        int n = r.from.length();
+        int start = r.claimed.getAndAdd(BUCKETS_MOVED_PER_OPERATION);
+        if (start >= n) {
+            return;
+        }
+        int end = Math.min(start + BUCKETS_MOVED_PER_OPERATION, n);
+        for (int i = start; i < end; i += 1) {
+            moveBucket(r, i);
+        }
+        if (r.moved.addAndGet(end - start) == n) {
+            table = r.to;
+            resize = null;
+        }
+    }
+
+    /** Copies the nodes of bucket INDEX of R's old table into its new one
+     *  and leaves a forwarding node in their place.  The nodes are copied,
+     *  not relinked, so that readers still walking the old chain finish
+     *  walking it. */
+    private void moveBucket(Resize<K, V> r, int index) {
+        int n = r.from.length();
+        Stripe stripe = stripeOf(stripes, index);
+        stripe.lock.lock();
+        try {
+            Node<K, V> low = null;
+            Node<K, V> high = null;
+            for (Node<K, V> e = r.from.get(index); e != null; e = e.next) {
+                if ((e.hash & n) == 0) {
+                    low = new Node<>(e.hash, e.key, e.value, low);
+                } else {
+                    high = new Node<>(e.hash, e.key, e.value, high);
+                }
+            }
+            r.to.set(index, low);
+            r.to.set(index + n, high);
+            r.from.set(index, new ForwardingNode<>(r.to));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void clear() {
+        for (K key : this) {
+            remove(key);
+        }
+    }
+
+    public Set<K> keySet() {
+        return new HashSet<>(keys());
+    }
+
+    /** Returns the keys in the map, each bucket as it is when read. */
+    private List<K> keys() {
+        List<K> res = new ArrayList<>();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i += 1) {
+            addKeys(tab, i, res);
+        }
+        return res;
+    }
+
+    /** Adds the keys in bucket INDEX of TAB, or of the buckets it has been
+     *  moved to, to RES. */
+    private void addKeys(AtomicReferenceArray<Node<K, V>> tab, int index, List<K> res) {
+        Node<K, V> first = tab.get(index);
+        if (first instanceof ForwardingNode) {
+            AtomicReferenceArray<Node<K, V>> next = ((ForwardingNode<K, V>) first).table;
+            addKeys(next, index, res);
+            addKeys(next, index + tab.length(), res);
+            return;
+        }
+        for (Node<K, V> e = first; e != null; e = e.next) {
+            res.add(e.key);
+        }
+    }
+
+    /** Returns an iterator over the keys in the map when it is called. */
+    public Iterator<K> iterator() {
+        return keys().iterator();
+    }
+}
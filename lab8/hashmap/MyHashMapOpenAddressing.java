@@ -0,0 +1,264 @@
+package hashmap;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ *  A hash table-backed Map implementation that stores its entries in the
+ *  table itself (open addressing) instead of in buckets, so an entry costs
+ *  no node objects and a lookup follows no pointers until it compares keys.
+ *
+ *  Keys, values and key hashes live in parallel arrays whose length is a
+ *  power of two.  A key goes in the first free slot at or after its home
+ *  slot (linear probing), using Robin Hood hashing: an entry that is
+ *  further from its home slot than the one in its way takes that slot and
+ *  moves the other one on.  This keeps probe sequences short and even, and
+ *  lets a lookup stop as soon as it meets an entry closer to home than the
+ *  key would be.  remove() shifts the entries after the removed one back
+ *  (backward-shift deletion), so the table never needs tombstones.
+ *
+ *  The stored hash of a slot has its top bit set, so a hash of 0 marks an
+ *  empty slot and comparing hashes first skips most key comparisons.
+ *
+ *  Assumes null keys will never be inserted, and does not resize down upon remove().
+ *  @author Colin Wang
+ */
+public class MyHashMapOpenAddressing<K, V> implements Map61B<K, V> {
+    private static final int DEFAULT_INITIALSIZE = 16;
+    private static final double DEFAULT_LOADFACTOR = 0.75;
+    /** Set in every stored hash, so that 0 means an empty slot. */
+    private static final int OCCUPIED = 0x80000000;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int mask;
+    private int size = 0;
+    /** The size at which the table doubles. */
+    private int threshold;
+    private final double maxloadfactor;
+
+    /** Constructors */
+    public MyHashMapOpenAddressing() {
+        this(DEFAULT_INITIALSIZE, DEFAULT_LOADFACTOR);
+    }
+
+    public MyHashMapOpenAddressing(int initialSize) {
+        this(initialSize, DEFAULT_LOADFACTOR);
+    }
+
+    /**
+     * MyHashMapOpenAddressing constructor that creates a table of at least
+     * initialSize slots.  The load factor (# items / # slots) is kept
+     * <= maxLoad, and always below 1.
+     *
+     * @param initialSize initial size of the table
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapOpenAddressing(int initialSize, double maxLoad) {
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        maxloadfactor = maxLoad;
+        createTable(tableSizeFor(initialSize));
+    }
+
+    /** Returns the smallest power of two that is at least N and at least 2. */
+    private static int tableSizeFor(int n) {
+        int size = 2;
+        while (size < n) {
+            size *= 2;
+        }
+        return size;
+    }
+
+    private void createTable(int tableSize) {
+        keys = new Object[tableSize];
+        values = new Object[tableSize];
+        hashes = new int[tableSize];
+        mask = tableSize - 1;
+        threshold = (int) Math.min(tableSize - 1, tableSize * maxloadfactor);
+    }
+
+    /**
+     * Returns the stored hash of KEY.  The multiplication spreads the low
+     * bits of hashCode() over the high ones and the shift brings them back
+     * down, since only the low bits choose the home slot.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) | OCCUPIED;
+    }
+
+    /** Returns how far the entry in SLOT is from its home slot. */
+    private int distance(int slot) {
+        return (slot - hashes[slot]) & mask;
+    }
+
+    /** Returns the slot holding KEY, or -1 if it is not in the map. */
+    private int find(K key) {
+        int h = hash(key);
+        int slot = h & mask;
+        for (int dist = 0; ; dist += 1) {
+            int stored = hashes[slot];
+            if (stored == 0 || distance(slot) < dist) {
+                return -1;
+            }
+            if (stored == h && key.equals(keys[slot])) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        createTable(DEFAULT_INITIALSIZE);
+    }
+
+    public boolean containsKey(K key) {
+        return find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        return (V) values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void put(K key, V value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        while (size + 1 > threshold) {
+            resize(keys.length * 2);
+        }
+        insert(hash(key), key, value);
+        size += 1;
+    }
+
+    /** Puts KEY, which is not in the table, with hash H and VALUE in. */
+    private void insert(int h, Object key, Object value) {
+        int slot = h & mask;
+        for (int dist = 0; ; dist += 1) {
+            int stored = hashes[slot];
+            if (stored == 0) {
+                hashes[slot] = h;
+                keys[slot] = key;
+                values[slot] = value;
+                return;
+            }
+            int storedDist = distance(slot);
+            if (storedDist < dist) {
+                // Take the slot from the entry closer to home and carry
+                // that entry on instead.
+                Object storedKey = keys[slot];
+                Object storedValue = values[slot];
+                hashes[slot] = h;
+                keys[slot] = key;
+                values[slot] = value;
+                h = stored;
+                key = storedKey;
+                value = storedValue;
+                dist = storedDist;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void resize(int newsize) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        createTable(newsize);
+        for (int i = 0; i < oldHashes.length; i += 1) {
+            if (oldHashes[i] != 0) {
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    public Set<K> keySet() {
+        HashSet<K> set = new HashSet<>();
+        for (K key : this) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    public V remove(K key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    public V remove(K key, V value) {
+        int slot = find(key);
+        if (slot < 0 || !values[slot].equals(value)) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    /**
+     * Removes the entry in SLOT and moves each following entry that is not
+     * in its home slot back by one, up to the first empty slot or entry at
+     * home.  Every key stays reachable from its home slot without gaps.
+     */
+    @SuppressWarnings("unchecked")
+    private V removeSlot(int slot) {
+        V value = (V) values[slot];
+        int next = (slot + 1) & mask;
+        while (hashes[next] != 0 && distance(next) > 0) {
+            hashes[slot] = hashes[next];
+            keys[slot] = keys[next];
+            values[slot] = values[next];
+            slot = next;
+            next = (next + 1) & mask;
+        }
+        hashes[slot] = 0;
+        keys[slot] = null;
+        values[slot] = null;
+        size -= 1;
+        return value;
+    }
+
+    public Iterator<K> iterator() {
+        return new MyHashMapOpenAddressingIterator();
+    }
+
+    private class MyHashMapOpenAddressingIterator implements Iterator<K> {
+        private int slot = 0;
+        private int leftKeys = size;
+
+        public boolean hasNext() {
+            return leftKeys > 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while (hashes[slot] == 0) {
+                slot += 1;
+            }
+            leftKeys -= 1;
+            slot += 1;
+            return (K) keys[slot - 1];
+        }
+    }
+}
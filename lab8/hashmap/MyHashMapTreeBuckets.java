@@ -0,0 +1,147 @@
+package hashmap;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Hash Table with buckets that turn into balanced trees when they grow
+ * long.  A bucket is a list until it holds more than TREEIFY_THRESHOLD
+ * nodes, and then a BalancedBSTMap from keys to nodes, so that even keys
+ * that all hash alike take O(log N) time to find instead of O(N).  It
+ * turns back into a list once it has fewer than UNTREEIFY_THRESHOLD nodes.
+ * Trees need comparable keys, so we restrict our map to only allow them.
+ *
+ * @author Colin Wang
+ */
+public class MyHashMapTreeBuckets<K extends Comparable<K>, V> extends MyHashMap<K, V> {
+    /** Above this many nodes, a bucket becomes a tree. */
+    static final int TREEIFY_THRESHOLD = 8;
+    /** Below this many nodes, a tree becomes a list again.  Lower than
+     *  TREEIFY_THRESHOLD, so that a bucket at the threshold does not
+     *  convert back and forth on every put and remove. */
+    static final int UNTREEIFY_THRESHOLD = 6;
+
+    /**
+     * Constructor that creates a backing array with default
+     * initial size and load factor
+     */
+    public MyHashMapTreeBuckets() {
+        super();
+    }
+
+    /**
+     * Constructor that creates a backing array of initialSize
+     * and default load factor
+     *
+     * @param initialSize initial size of backing array
+     */
+    public MyHashMapTreeBuckets(int initialSize) {
+        super(initialSize);
+    }
+
+    /**
+     * Constructor that creates a backing array of initialSize.
+     * The load factor (# items / # buckets) should always be <= loadFactor
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapTreeBuckets(int initialSize, double maxLoad) {
+        super(initialSize, maxLoad);
+    }
+
+    @Override
+    protected Collection<Node> createBucket() {
+        return new TreeifyingBucket();
+    }
+
+    @Override
+    protected Node getNode(K key, Collection<Node> bucket) {
+        if (bucket == null) {
+            return null;
+        }
+        return ((TreeifyingBucket) bucket).find(key);
+    }
+
+    /** A bucket that is a list of nodes while it is short and a tree of
+     *  them while it is long. */
+    private class TreeifyingBucket extends AbstractCollection<Node> {
+        private LinkedList<Node> list = new LinkedList<>();
+        /** The nodes by key while the bucket is a tree, or null. */
+        private BalancedBSTMap<K, Node> tree;
+
+        /** Returns the node of KEY, or null. */
+        Node find(K key) {
+            if (tree != null) {
+                return tree.get(key);
+            }
+            for (Node node : list) {
+                if (node.key.equals(key)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean add(Node node) {
+            if (tree != null) {
+                tree.put(node.key, node);
+                return true;
+            }
+            list.add(node);
+            if (list.size() > TREEIFY_THRESHOLD) {
+                tree = new BalancedBSTMap<>();
+                for (Node n : list) {
+                    tree.put(n.key, n);
+                }
+                list = null;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) {
+            Node node = (Node) o;
+            if (tree == null) {
+                return list.remove(node);
+            }
+            if (tree.remove(node.key) == null) {
+                return false;
+            }
+            if (tree.size() < UNTREEIFY_THRESHOLD) {
+                list = new LinkedList<>();
+                for (K key : tree) {
+                    list.add(tree.get(key));
+                }
+                tree = null;
+            }
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return tree != null ? tree.size() : list.size();
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            if (tree == null) {
+                return list.iterator();
+            }
+            Iterator<K> keys = tree.iterator();
+            return new Iterator<>() {
+                public boolean hasNext() {
+                    return keys.hasNext();
+                }
+
+                public Node next() {
+                    return tree.get(keys.next());
+                }
+            };
+        }
+    }
+}
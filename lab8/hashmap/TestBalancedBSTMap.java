@@ -0,0 +1,53 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/** Tests of BalancedBSTMap. */
+public class TestBalancedBSTMap {
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityTests(BalancedBSTMap::new);
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(new BalancedBSTMap<>(), new BalancedBSTMap<>());
+    }
+
+    /** Keys put in order, which make a plain BST a list, make a tree no
+     *  more than 2 lg N high, and removing most of them keeps it so. */
+    @Test
+    public void testHeight() {
+        BalancedBSTMap<Integer, Integer> q = new BalancedBSTMap<>();
+        int n = 1 << 16;
+        for (int i = 0; i < n; i += 1) {
+            q.put(i, i);
+        }
+        assertEquals(n, q.size());
+        assertTrue(q.height() <= 2 * 16);
+        for (int i = 0; i < n - 1000; i += 1) {
+            assertEquals(Integer.valueOf(i), q.remove(i));
+        }
+        assertEquals(1000, q.size());
+        assertTrue(q.height() <= 2 * 10);
+    }
+
+    /** Random puts and removes give the same results as java.util.HashMap,
+     *  and iteration visits the keys left in increasing order. */
+    @Test
+    public void randomizedTest() {
+        BalancedBSTMap<Integer, Integer> q = new BalancedBSTMap<>();
+        TestMyHashMap.randomizedTest(q, 2000);
+        List<Integer> keys = new ArrayList<>();
+        for (int key : q) {
+            keys.add(key);
+        }
+        assertEquals(new ArrayList<>(new TreeSet<>(q.keySet())), keys);
+    }
+}
@@ -0,0 +1,71 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/** Tests of IntIntMap. */
+public class TestIntIntMap {
+
+    @Test
+    public void testIntMethods() {
+        IntIntMap q = new IntIntMap();
+        assertEquals(-1, q.get(5, -1));
+        q.put(5, 50);
+        q.put(7, 70);
+        q.put(5, 55);
+        assertEquals(55, q.get(5, -1));
+        assertEquals(70, q.get(7, -1));
+        assertTrue(q.containsKey(7));
+        assertFalse(q.containsKey(6));
+        assertEquals(2, q.size());
+        assertTrue(q.remove(5));
+        assertFalse(q.remove(5));
+        assertEquals(1, q.size());
+    }
+
+    /** Key 0, which marks empty slots in the table, is a key like any other. */
+    @Test
+    public void testZeroKey() {
+        IntIntMap q = new IntIntMap();
+        assertFalse(q.containsKey(0));
+        assertNull(q.get((Integer) 0));
+        q.put(0, 0);
+        q.put(1, 1);
+        assertTrue(q.containsKey(0));
+        assertEquals(Integer.valueOf(0), q.get((Integer) 0));
+        assertEquals(2, q.size());
+        assertEquals(java.util.Set.of(0, 1), q.keySet());
+        assertNull(q.remove((Integer) 0, (Integer) 1));
+        assertEquals(Integer.valueOf(0), q.remove((Integer) 0));
+        assertFalse(q.containsKey(0));
+        assertEquals(1, q.size());
+    }
+
+    /** Keys that differ only in their high bits still spread over the
+     *  table, and removing some of them leaves the rest reachable. */
+    @Test
+    public void testHighBitKeys() {
+        IntIntMap q = new IntIntMap();
+        for (int i = 1; i <= 1000; i += 1) {
+            q.put(i << 20, i);
+        }
+        for (int i = 1; i <= 1000; i += 2) {
+            assertTrue(q.remove(i << 20));
+        }
+        for (int i = 1; i <= 1000; i += 1) {
+            assertEquals(i % 2 == 0 ? i : -1, q.get(i << 20, -1));
+        }
+        assertEquals(500, q.size());
+    }
+
+    /** Random puts and removes through the Map61B methods, key 0 among
+     *  them, give the same results as java.util.HashMap. */
+    @Test
+    public void randomizedTest() {
+        IntIntMap q = new IntIntMap(2, 0.9);
+        TestMyHashMap.randomizedTest(q, 2000);
+        q.clear();
+        assertEquals(0, q.size());
+        assertFalse(q.iterator().hasNext());
+    }
+}
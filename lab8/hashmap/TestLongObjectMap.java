@@ -0,0 +1,64 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/** Tests of LongObjectMap. */
+public class TestLongObjectMap {
+
+    @Test
+    public void testLongMethods() {
+        LongObjectMap<String> q = new LongObjectMap<>();
+        assertNull(q.get(5L));
+        q.put(5L, "five");
+        q.put(1L << 40, "big");
+        q.put(5L, "FIVE");
+        assertEquals("FIVE", q.get(5L));
+        assertEquals("big", q.get(1L << 40));
+        assertFalse(q.containsKey(1L << 41));
+        assertEquals(2, q.size());
+        assertEquals("FIVE", q.remove(5L));
+        assertNull(q.remove(5L));
+        assertEquals(1, q.size());
+    }
+
+    /** Key 0, which marks empty slots in the table, is a key like any other. */
+    @Test
+    public void testZeroKey() {
+        LongObjectMap<String> q = new LongObjectMap<>();
+        assertFalse(q.containsKey(0L));
+        q.put(0L, "zero");
+        q.put(-1L, "minus one");
+        assertEquals("zero", q.get(0L));
+        assertEquals(2, q.size());
+        assertEquals(java.util.Set.of(0L, -1L), q.keySet());
+        assertNull(q.remove((Long) 0L, "one"));
+        assertEquals("zero", q.remove((Long) 0L, "zero"));
+        assertFalse(q.containsKey(0L));
+        assertEquals(1, q.size());
+    }
+
+    /** Keys that differ only in their high 32 bits still spread over the
+     *  table, and removing some of them leaves the rest reachable. */
+    @Test
+    public void testHighBitKeys() {
+        LongObjectMap<Integer> q = new LongObjectMap<>();
+        for (int i = 1; i <= 1000; i += 1) {
+            q.put((long) i << 32, Integer.valueOf(i));
+        }
+        for (int i = 1; i <= 1000; i += 2) {
+            assertEquals(Integer.valueOf(i), q.remove((long) i << 32));
+        }
+        for (int i = 1; i <= 1000; i += 1) {
+            assertEquals(i % 2 == 0 ? Integer.valueOf(i) : null, q.get((long) i << 32));
+        }
+        assertEquals(500, q.size());
+    }
+
+    /** Random puts and removes of keys with both halves set give the same
+     *  results as java.util.HashMap. */
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(new LongObjectMap<>(2, 0.9), 2000, k -> k * 0x100000001L);
+    }
+}
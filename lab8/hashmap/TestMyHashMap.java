@@ -3,8 +3,13 @@ package hashmap;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
  * Tests by Brendan Hu, Spring 2015
@@ -27,7 +32,7 @@ public class TestMyHashMap {
         sanityClearTest(new MyHashMap<>());
     }
 
-    public static void sanityClearTest(MyHashMap<String, Integer> b) {
+    public static void sanityClearTest(Map61B<String, Integer> b) {
         for (int i = 0; i < 455; i++) {
             b.put("hi" + i, 1);
             //make sure put is working via containsKey and get
@@ -47,7 +52,7 @@ public class TestMyHashMap {
         sanityContainsKeyTest(new MyHashMap<>());
     }
 
-    public static void sanityContainsKeyTest(MyHashMap<String, Integer> b) {
+    public static void sanityContainsKeyTest(Map61B<String, Integer> b) {
         assertFalse(b.containsKey("waterYouDoingHere"));
         b.put("waterYouDoingHere", 0);
         assertTrue(b.containsKey("waterYouDoingHere"));
@@ -59,7 +64,7 @@ public class TestMyHashMap {
         sanityGetTest(new MyHashMap<>());
     }
 
-    public static void sanityGetTest(MyHashMap<String, Integer> b) {
+    public static void sanityGetTest(Map61B<String, Integer> b) {
         assertEquals(null, b.get("starChild"));
         b.put("starChild", 5);
         assertNotEquals(null, b.get("starChild"));
@@ -74,7 +79,7 @@ public class TestMyHashMap {
         sanitySizeTest(new MyHashMap<>());
     }
 
-    public static void sanitySizeTest(MyHashMap<String, Integer> b) {
+    public static void sanitySizeTest(Map61B<String, Integer> b) {
         assertEquals(0, b.size());
         b.put("hi", 1);
         assertEquals(1, b.size());
@@ -90,7 +95,7 @@ public class TestMyHashMap {
         sanityPutTest(new MyHashMap<>());
     }
 
-    public static void sanityPutTest(MyHashMap<String, Integer> b) {
+    public static void sanityPutTest(Map61B<String, Integer> b) {
         b.put("hi", 1);
         assertTrue(b.containsKey("hi") && b.get("hi") != null);
     }
@@ -100,7 +105,7 @@ public class TestMyHashMap {
         sanityKeySetTest(new MyHashMap<>());
     }
 
-    public static void sanityKeySetTest(MyHashMap<String, Integer> b) {
+    public static void sanityKeySetTest(Map61B<String, Integer> b) {
         HashSet<String> values = new HashSet<String>();
         for (int i = 0; i < 455; i++) {
             b.put("hi" + i, 1);
@@ -112,14 +117,65 @@ public class TestMyHashMap {
         assertTrue(keySet.containsAll(values));
     }
 
+    /** Runs each of the sanity tests above on a new map from NEWMAP. */
+    public static void sanityTests(Supplier<? extends Map61B<String, Integer>> newMap) {
+        sanityClearTest(newMap.get());
+        sanityContainsKeyTest(newMap.get());
+        sanityGetTest(newMap.get());
+        sanitySizeTest(newMap.get());
+        sanityPutTest(newMap.get());
+        sanityKeySetTest(newMap.get());
+    }
+
+    // Random puts and removes give the same results as java.util.HashMap
+    @Test
+    public void randomizedTest() {
+        randomizedTest(new MyHashMap<>(1, 0.75), 2000);
+    }
+
+    /** Applies random puts and removes of KEYS distinct keys, about half of
+     *  them negative, to B and to a java.util.HashMap, and checks that the
+     *  two agree on the size and on a random lookup after every operation,
+     *  then on every key.  B is left holding what is left. */
+    public static void randomizedTest(Map61B<Integer, Integer> b, int keys) {
+        randomizedTest(b, keys, k -> k);
+    }
+
+    /** The same for a map whose keys are KEYOF applied to those ints.
+     *  KEYOF must give distinct keys for distinct ints. */
+    public static <K> void randomizedTest(Map61B<K, Integer> b, int keys, IntFunction<K> keyOf) {
+        Random random = new Random(61);
+        Map<K, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i += 1) {
+            K key = keyOf.apply(random.nextInt(keys) - keys / 2);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+            K probe = keyOf.apply(random.nextInt(keys) - keys / 2);
+            assertEquals(expected.get(probe), b.get(probe));
+            if (i % 1000 == 0) {
+                assertEquals(expected.keySet(), b.keySet());
+            }
+        }
+        for (int k = -keys / 2; k < keys - keys / 2; k += 1) {
+            K key = keyOf.apply(k);
+            assertEquals(expected.get(key), b.get(key));
+        }
+        assertEquals(expected.keySet(), b.keySet());
+    }
+
     // Test for general functionality and that the properties of Maps hold.
     @Test
     public void functionalityTest() {
         functionalityTest(new MyHashMap<>(), new MyHashMap<>());
     }
 
-    public static void functionalityTest(MyHashMap<String, String> dictionary,
-                                   MyHashMap<String, Integer> studentIDs) {
+    public static void functionalityTest(Map61B<String, String> dictionary,
+                                   Map61B<String, Integer> studentIDs) {
         assertEquals(0, dictionary.size());
 
         // can put objects in dictionary and get them
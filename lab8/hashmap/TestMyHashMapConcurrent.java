@@ -0,0 +1,123 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/** Tests of MyHashMapConcurrent, alone and with many threads using it at
+ *  once while its table grows. */
+public class TestMyHashMapConcurrent {
+    private static final int THREADS = 8;
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityTests(MyHashMapConcurrent::new);
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(new MyHashMapConcurrent<>(), new MyHashMapConcurrent<>());
+    }
+
+    /** Random puts and removes from one thread give the same results as
+     *  java.util.HashMap. */
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(new MyHashMapConcurrent<>(1, 0.75), 20000);
+    }
+
+    /** Runs BODY on THREADS threads, passing each its number, and fails if
+     *  any of them throws. */
+    private static void runThreads(java.util.function.IntConsumer body) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        Throwable[] failures = new Throwable[THREADS];
+        for (int t = 0; t < THREADS; t += 1) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    body.accept(id);
+                } catch (Throwable e) {
+                    failures[id] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < THREADS; t += 1) {
+            threads[t].join();
+            if (failures[t] != null) {
+                throw new AssertionError("thread " + t + " failed", failures[t]);
+            }
+        }
+    }
+
+    /** Threads putting disjoint keys into a small map, which grows many
+     *  times meanwhile, lose none of them. */
+    @Test
+    public void concurrentPutTest() throws InterruptedException {
+        MyHashMapConcurrent<Integer, Integer> q = new MyHashMapConcurrent<>();
+        int perThread = 50000;
+        runThreads(id -> {
+            for (int i = 0; i < perThread; i += 1) {
+                int key = id * perThread + i;
+                q.put(key, key);
+            }
+        });
+        assertEquals(THREADS * perThread, q.size());
+        for (int key = 0; key < THREADS * perThread; key += 1) {
+            assertEquals(Integer.valueOf(key), q.get(key));
+        }
+        assertEquals(THREADS * perThread, q.keySet().size());
+    }
+
+    /** While some threads put and remove their own keys, readers find
+     *  every key that no thread removes, and after all that each thread's
+     *  keys are exactly those it put last. */
+    @Test
+    public void concurrentPutRemoveGetTest() throws InterruptedException {
+        MyHashMapConcurrent<Integer, Integer> q = new MyHashMapConcurrent<>();
+        int stable = 10000;
+        for (int key = 0; key < stable; key += 1) {
+            q.put(key, key);
+        }
+        int perThread = 20000;
+        List<Set<Integer>> kept = new ArrayList<>(Collections.nCopies(THREADS, null));
+        runThreads(id -> {
+            if (id % 2 == 0) {
+                Random random = new Random(id);
+                for (int i = 0; i < 4 * perThread; i += 1) {
+                    int key = random.nextInt(stable);
+                    assertEquals(Integer.valueOf(key), q.get(key));
+                }
+                return;
+            }
+            Random random = new Random(id);
+            Set<Integer> mine = new HashSet<>();
+            for (int i = 0; i < 4 * perThread; i += 1) {
+                int key = stable + id * perThread + random.nextInt(perThread);
+                if (random.nextBoolean()) {
+                    q.put(key, id);
+                    mine.add(key);
+                } else {
+                    assertEquals(mine.remove(key) ? Integer.valueOf(id) : null, q.remove(key));
+                }
+            }
+            kept.set(id, mine);
+        });
+        int expectedSize = stable;
+        for (int id = 1; id < THREADS; id += 2) {
+            expectedSize += kept.get(id).size();
+            for (int key : kept.get(id)) {
+                assertEquals(Integer.valueOf(id), q.get(key));
+            }
+        }
+        assertEquals(expectedSize, q.size());
+        q.clear();
+        assertEquals(0, q.size());
+    }
+}
@@ -0,0 +1,37 @@
+package hashmap;
+
+import org.junit.Test;
+
+/** Tests of MyHashMap in incremental resize mode, where lookups, puts,
+ *  removes and iteration must all work while entries are split between
+ *  two tables. */
+public class TestMyHashMapIncrementalResize {
+
+    private static <K, V> MyHashMap<K, V> incremental() {
+        return new MyHashMap<>(16, 0.75, true);
+    }
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityTests(TestMyHashMapIncrementalResize::incremental);
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(incremental(), incremental());
+    }
+
+    /** Random puts and removes give the same results as java.util.HashMap,
+     *  checked after every operation, in the middle of moves included. */
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(new MyHashMap<>(1, 0.75, true), 5000);
+    }
+
+    /** The same with a load factor so small that each put must move more
+     *  than the usual few buckets for a move to end before the next. */
+    @Test
+    public void smallMaxLoadTest() {
+        TestMyHashMap.randomizedTest(new MyHashMap<>(1, 0.1, true), 5000);
+    }
+}
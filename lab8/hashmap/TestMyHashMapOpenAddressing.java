@@ -0,0 +1,82 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/** Tests of MyHashMapOpenAddressing, including the general map tests of
+ *  TestMyHashMap. */
+public class TestMyHashMapOpenAddressing {
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityTests(MyHashMapOpenAddressing::new);
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(new MyHashMapOpenAddressing<>(), new MyHashMapOpenAddressing<>());
+    }
+
+    @Test
+    public void testRemove() {
+        MyHashMapOpenAddressing<String, String> q = new MyHashMapOpenAddressing<>();
+        q.put("c", "a");
+        q.put("b", "a");
+        q.put("a", "a");
+        q.put("d", "a");
+        q.put("e", "a");
+        assertEquals("a", q.remove("c"));
+        assertFalse(q.containsKey("c"));
+        assertTrue(q.containsKey("a"));
+        assertTrue(q.containsKey("b"));
+        assertTrue(q.containsKey("d"));
+        assertTrue(q.containsKey("e"));
+        assertNull(q.remove("c"));
+        assertNull(q.remove("d", "b"));
+        assertEquals("a", q.remove("d", "a"));
+        assertEquals(3, q.size());
+    }
+
+    /** A key whose hash code is always the same. */
+    private static class Colliding {
+        private final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 61;
+        }
+    }
+
+    /** Keys that all have the same home slot make one long probe sequence,
+     *  which removal must keep intact. */
+    @Test
+    public void testCollidingKeys() {
+        MyHashMapOpenAddressing<Colliding, Integer> q = new MyHashMapOpenAddressing<>();
+        for (int i = 0; i < 200; i += 1) {
+            q.put(new Colliding(i), i);
+        }
+        for (int i = 0; i < 200; i += 2) {
+            assertEquals(Integer.valueOf(i), q.remove(new Colliding(i)));
+        }
+        for (int i = 0; i < 200; i += 1) {
+            assertEquals(i % 2 == 1, q.containsKey(new Colliding(i)));
+        }
+        assertEquals(100, q.size());
+    }
+
+    /** Random puts and removes at a high load factor, where probe
+     *  sequences get long, give the same results as java.util.HashMap. */
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(new MyHashMapOpenAddressing<>(2, 0.9), 2000);
+    }
+}
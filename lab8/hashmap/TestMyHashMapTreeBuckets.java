@@ -0,0 +1,94 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/** Tests of MyHashMapTreeBuckets on keys that all land in one bucket, which
+ *  turns into a tree and back as it grows and shrinks. */
+public class TestMyHashMapTreeBuckets {
+
+    /** A comparable key whose hash code is always the same. */
+    private static class Colliding implements Comparable<Colliding> {
+        private final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Colliding o) {
+            return Integer.compare(id, o.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 61;
+        }
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        MyHashMapTreeBuckets<Colliding, Integer> q = new MyHashMapTreeBuckets<>();
+        for (int i = 0; i < 1000; i += 1) {
+            q.put(new Colliding(i), i);
+        }
+        q.put(new Colliding(500), -500);
+        assertEquals(1000, q.size());
+        for (int i = 0; i < 1000; i += 1) {
+            assertEquals(Integer.valueOf(i == 500 ? -500 : i), q.get(new Colliding(i)));
+        }
+        assertNull(q.get(new Colliding(1000)));
+        assertEquals(1000, q.keySet().size());
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(Integer.valueOf(i == 500 ? -500 : i), q.remove(new Colliding(i)));
+        }
+        assertNull(q.remove(new Colliding(0)));
+        assertNull(q.remove(new Colliding(1), 2));
+        assertEquals(500, q.size());
+        for (int i = 0; i < 1000; i += 1) {
+            assertEquals(i % 2 == 1, q.containsKey(new Colliding(i)));
+        }
+    }
+
+    /** Shrinking a tree bucket below UNTREEIFY_THRESHOLD and growing it
+     *  past TREEIFY_THRESHOLD again loses no keys. */
+    @Test
+    public void testTreeifyAndBack() {
+        MyHashMapTreeBuckets<Colliding, Integer> q = new MyHashMapTreeBuckets<>();
+        int n = MyHashMapTreeBuckets.TREEIFY_THRESHOLD + 1;
+        for (int round = 0; round < 3; round += 1) {
+            for (int i = 0; i < n; i += 1) {
+                q.put(new Colliding(i), round);
+            }
+            for (int i = 0; i < n - MyHashMapTreeBuckets.UNTREEIFY_THRESHOLD + 1; i += 1) {
+                assertEquals(Integer.valueOf(round), q.remove(new Colliding(i)));
+            }
+            assertEquals(MyHashMapTreeBuckets.UNTREEIFY_THRESHOLD - 1, q.size());
+            for (int i = 0; i < n; i += 1) {
+                assertEquals(i > n - MyHashMapTreeBuckets.UNTREEIFY_THRESHOLD, q.containsKey(new Colliding(i)));
+            }
+        }
+    }
+
+    /** Random puts and removes of keys that fall in few buckets give the
+     *  same results as java.util.HashMap. */
+    @Test
+    public void randomizedTest() {
+        TestMyHashMap.randomizedTest(new MyHashMapTreeBuckets<>(), 768, TestMyHashMapTreeBuckets::colliding);
+    }
+
+    /** Returns a distinct string for K whose hash code depends only on
+     *  K >> 8: strings of "Aa" and "BB" blocks all hash alike. */
+    private static String colliding(int k) {
+        StringBuilder sb = new StringBuilder();
+        for (int b = 0; b < 8; b += 1) {
+            sb.append(((k >> b) & 1) == 0 ? "Aa" : "BB");
+        }
+        return sb.append(k >> 8).toString();
+    }
+}
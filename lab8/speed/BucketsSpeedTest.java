@@ -11,6 +11,7 @@ import hashmap.MyHashMapLLBuckets;
 import hashmap.MyHashMapTSBuckets;
 import hashmap.MyHashMapHSBuckets;
 import hashmap.MyHashMapPQBuckets;
+import hashmap.MyHashMapTreeBuckets;
 
 /** Performs a timing test on three different set implementations.
  *  @author Neil Kulkarni adapted from Josh Hug, Brendan Hu
@@ -42,6 +43,18 @@ public class BucketsSpeedTest {
             timeRandomMap61B(new MyHashMapTSBuckets<>(), N, L);
             timeRandomMap61B(new MyHashMapHSBuckets<>(), N, L);
             timeRandomMap61B(new MyHashMapPQBuckets<>(), N, L);
+            timeRandomMap61B(new MyHashMapTreeBuckets<>(), N, L);
+
+            // Keys that all hash alike put every one of them in one bucket.
+            System.out.print("\nEnter # colliding strings to insert into each map: ");
+            N = waitForPositiveInt(input);
+            String[] keys = collidingStrings(N);
+            timeCollidingMap61B(new MyHashMapALBuckets<>(), keys);
+            timeCollidingMap61B(new MyHashMapLLBuckets<>(), keys);
+            timeCollidingMap61B(new MyHashMapTSBuckets<>(), keys);
+            timeCollidingMap61B(new MyHashMapHSBuckets<>(), keys);
+            timeCollidingMap61B(new MyHashMapPQBuckets<>(), keys);
+            timeCollidingMap61B(new MyHashMapTreeBuckets<>(), keys);
 
             System.out.print("\nWould you like to try more timed-tests? (y/n)");
             repeat = input.nextLine();
@@ -79,6 +92,54 @@ public class BucketsSpeedTest {
         }
     }
 
+    /**
+     * Returns N distinct strings with the same hashCode.  "Aa" and "BB"
+     * hash alike, and so do any two strings of as many such blocks.
+     */
+    public static String[] collidingStrings(int N) {
+        int blocks = 1;
+        while ((1L << blocks) < N) {
+            blocks++;
+        }
+        String[] keys = new String[N];
+        for (int i = 0; i < N; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int b = 0; b < blocks; b++) {
+                sb.append(((i >> b) & 1) == 0 ? "Aa" : "BB");
+            }
+            keys[i] = sb.toString();
+        }
+        return keys;
+    }
+
+    /**
+     * Attempts to insert KEYS, which all hash alike, into map and then look
+     * each of them up,
+     * Prints time of the insert calls and the mean time of a lookup, which
+     * is the worst case since every lookup searches the same bucket, otherwise
+     * Prints a nice message about the error
+     */
+    public static void timeCollidingMap61B(Map61B<String, Integer> map, String[] keys) {
+        try {
+            Stopwatch sw = new Stopwatch();
+            for (int i = 0; i < keys.length; i++) {
+                map.put(keys[i], i);
+            }
+            double mapTime = sw.elapsedTime();
+            sw = new Stopwatch();
+            for (String key : keys) {
+                map.get(key);
+            }
+            double lookupTime = sw.elapsedTime();
+            System.out.printf(map.getClass() + ": %.2f sec, %.2f microseconds per lookup\n",
+                    mapTime, lookupTime * 1e6 / keys.length);
+        } catch (StackOverflowError e) {
+            printInfoOnStackOverflow(keys.length, keys[0].length());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Waits for the user on other side of Scanner
      * to enter a positive int,
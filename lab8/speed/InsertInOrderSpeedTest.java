@@ -8,6 +8,7 @@ import edu.princeton.cs.algs4.Stopwatch;
 import hashmap.Map61B;
 import hashmap.ULLMap;
 import hashmap.MyHashMap;
+import hashmap.MyHashMapOpenAddressing;
 
 /**
  * Performs a timing test on three different set implementations.
@@ -40,6 +41,10 @@ public class InsertInOrderSpeedTest {
             timeInOrderMap61B(new MyHashMap<String, Integer>(),
                     i.waitForPositiveInt(input));
 
+            System.out.print("\nEnter # strings to insert into hashmap.MyHashMapOpenAddressing: ");
+            timeInOrderMap61B(new MyHashMapOpenAddressing<String, Integer>(),
+                    i.waitForPositiveInt(input));
+
             System.out.print("\nEnter # strings to insert into Java's HashMap: ");
             timeInOrderHashMap(new HashMap<String, Integer>(),
                     i.waitForPositiveInt(input));
@@ -0,0 +1,144 @@
+package speed;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+import hashmap.MyHashMapConcurrent;
+
+/** Times T threads putting N random strings, N / T each, into a map and
+ *  then looking them up, for T from 1 up to a given number of threads,
+ *  and prints the throughput of each T.  The maps are MyHashMapConcurrent
+ *  and MyHashMap behind one lock, whose throughput cannot grow with T.
+ *  Scaling needs as many cores as threads.
+ *  @author Colin Wang
+ */
+public class InsertRandomConcurrentSpeedTest {
+    /**
+     * Requests user input and times both maps for each number of threads.
+     * ARGS is unused.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program inserts random "
+                + "Strings of length L\n"
+                + " Into different types of maps "
+                + "as <String, Integer> pairs,\n"
+                + " from 1, 2, 4, ... threads.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+        System.out.printf("Up to how many threads (this machine has %d cores)?: ",
+                Runtime.getRuntime().availableProcessors());
+        int maxThreads = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            String[] keys = new String[N];
+            for (int i = 0; i < N; i++) {
+                keys[i] = StringUtils.randomString(L);
+            }
+
+            for (int T = 1; ; T = Math.min(2 * T, maxThreads)) {
+                timeThreads("hashmap.MyHashMapConcurrent", new MyHashMapConcurrent<>(), keys, T);
+                timeThreads("hashmap.MyHashMap behind one lock", new LockedMap<>(new MyHashMap<>()), keys, T);
+                if (T == maxThreads) {
+                    break;
+                }
+            }
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /**
+     * Starts T threads at once, each putting its share of KEYS into MAP and
+     * then getting them, and prints how long they took and how many
+     * operations per second that makes.
+     */
+    public static void timeThreads(String name, Map61B<String, Integer> map, String[] keys,
+                                   int T) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[T];
+        for (int t = 0; t < T; t++) {
+            int from = (int) ((long) keys.length * t / T);
+            int to = (int) ((long) keys.length * (t + 1) / T);
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = from; i < to; i++) {
+                    map.put(keys[i], i);
+                }
+                for (int i = from; i < to; i++) {
+                    map.get(keys[i]);
+                }
+            });
+            threads[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("%s, %d threads: %.2f sec, %.2f million ops/sec\n",
+                name, T, seconds, 2.0 * keys.length / seconds / 1e6);
+    }
+
+    /** MAP with every call made while holding one lock, which is how a map
+     *  that is not thread-safe is shared. */
+    private static class LockedMap<K, V> implements Map61B<K, V> {
+        private final Map61B<K, V> map;
+
+        LockedMap(Map61B<K, V> map) {
+            this.map = map;
+        }
+
+        public synchronized void clear() {
+            map.clear();
+        }
+
+        public synchronized boolean containsKey(K key) {
+            return map.containsKey(key);
+        }
+
+        public synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        public synchronized int size() {
+            return map.size();
+        }
+
+        public synchronized void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        public synchronized Set<K> keySet() {
+            return map.keySet();
+        }
+
+        public synchronized V remove(K key) {
+            return map.remove(key);
+        }
+
+        public synchronized V remove(K key, V value) {
+            return map.remove(key, value);
+        }
+
+        public synchronized Iterator<K> iterator() {
+            return map.keySet().iterator();
+        }
+    }
+}
@@ -8,12 +8,17 @@ import edu.princeton.cs.algs4.Stopwatch;
 import hashmap.Map61B;
 import hashmap.ULLMap;
 import hashmap.MyHashMap;
+import hashmap.MyHashMapOpenAddressing;
 
 /** Performs a timing test on three different set implementations.
  *  @author Josh Hug
  *  @author Brendan Hu
  */
 public class InsertRandomSpeedTest {
+    /** Seeds the strings inserted, so that the lookups that follow can
+     *  find the same ones. */
+    private static final long SEED = 61;
+
     /**
      * Requests user input and performs tests of three different set
      * implementations. ARGS is unused. 
@@ -39,6 +44,10 @@ public class InsertRandomSpeedTest {
             timeRandomMap61B(new MyHashMap<String, Integer>(),
                     waitForPositiveInt(input), L);
 
+            System.out.print("\nEnter # strings to insert into hashmap.MyHashMapOpenAddressing: ");
+            timeRandomMap61B(new MyHashMapOpenAddressing<String, Integer>(),
+                    waitForPositiveInt(input), L);
+
             System.out.print("\nEnter # strings to insert into Java's HashMap: ");
             timeRandomHashMap(new HashMap<String, Integer>(),
                     waitForPositiveInt(input), L);
@@ -63,6 +72,30 @@ public class InsertRandomSpeedTest {
         return sw.elapsedTime();
     }
 
+    /**
+     * Returns time needed to look up N random strings of length L in the
+     * hashmap.Map61B 61bMap.
+     */
+    public static double lookupRandom(Map61B<String, Integer> map61B, int N, int L) {
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < N; i++) {
+            map61B.get(StringUtils.randomString(L));
+        }
+        return sw.elapsedTime();
+    }
+
+    /**
+     * Returns time needed to look up N random strings of length L in the
+     * HashMap hashMap.
+     */
+    public static double lookupRandom(HashMap<String, Integer> hashMap, int N, int L) {
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < N; i++) {
+            hashMap.get(StringUtils.randomString(L));
+        }
+        return sw.elapsedTime();
+    }
+
     /**
      * Returns time needed to put N random strings of length L into the
      * HashMap hashMap.
@@ -78,14 +111,19 @@ public class InsertRandomSpeedTest {
     }
 
     /**
-     * Attempts to insert N random strings of length L into map,
-     * Prints time of the N insert calls, otherwise
+     * Attempts to insert N random strings of length L into map and then
+     * look the same strings up,
+     * Prints time of the N insert calls and of the N lookups, otherwise
      * Prints a nice message about the error
      */
     public static void timeRandomMap61B(Map61B<String, Integer> map, int N, int L) {
         try {
+            StringUtils.setSeed(SEED);
             double mapTime = insertRandom(map, N, L);
             System.out.printf(map.getClass() + ": %.2f sec\n", mapTime);
+            StringUtils.setSeed(SEED);
+            double lookupTime = lookupRandom(map, N, L);
+            System.out.printf(map.getClass() + " lookups: %.2f sec\n", lookupTime);
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N, L);
         } catch (RuntimeException e) {
@@ -94,14 +132,19 @@ public class InsertRandomSpeedTest {
     }
 
     /**
-     * Attempts to insert N random strings of length L into a HashMap
-     * Prints time of the N insert calls, otherwise
+     * Attempts to insert N random strings of length L into a HashMap and
+     * then look the same strings up,
+     * Prints time of the N insert calls and of the N lookups, otherwise
      * Prints a nice message about the error
      */
     public static void timeRandomHashMap(HashMap<String, Integer> hashMap, int N, int L) {
         try {
+            StringUtils.setSeed(SEED);
             double javaTime = insertRandom(hashMap, N, L);
             System.out.printf("Java's Built-in HashMap: %.2f sec\n", javaTime);
+            StringUtils.setSeed(SEED);
+            double lookupTime = lookupRandom(hashMap, N, L);
+            System.out.printf("Java's Built-in HashMap lookups: %.2f sec\n", lookupTime);
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N, L);
         } catch (RuntimeException e) {
@@ -0,0 +1,66 @@
+package speed;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+
+/** Times every single put of N random strings into MyHashMap, resizing all
+ *  at once and incrementally, and prints the slowest ones: resizing all at
+ *  once makes the puts that grow the table as slow as the map is large.
+ *  Garbage collection pauses land on single puts too, so run it with a
+ *  heap large enough for the map (e.g. java -Xms2g -Xmx2g).
+ *  @author Colin Wang
+ */
+public class PutLatencySpeedTest {
+    /**
+     * Requests user input and times the puts of both resize modes.
+     * ARGS is unused.
+     */
+    public static void main(String[] args) throws IOException {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program inserts random "
+                + "Strings of length L\n"
+                + " Into MyHashMap as <String, Integer> pairs,\n"
+                + " timing each put.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+            timePuts("resizing at once", new MyHashMap<>(), N, L);
+            timePuts("resizing incrementally", new MyHashMap<>(16, 0.75, true), N, L);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /**
+     * Puts N random strings of length L into MAP, timing each put, and
+     * prints the total time, the 99.9th percentile and the slowest put.
+     */
+    public static void timePuts(String name, Map61B<String, Integer> map, int N, int L) {
+        String[] keys = new String[N];
+        for (int i = 0; i < N; i++) {
+            keys[i] = StringUtils.randomString(L);
+        }
+        long[] nanos = new long[N];
+        for (int i = 0; i < N; i++) {
+            long start = System.nanoTime();
+            map.put(keys[i], i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        long total = Arrays.stream(nanos).sum();
+        Arrays.sort(nanos);
+        System.out.printf("MyHashMap %s: %.2f sec, 99.9%% of puts within %.3f ms, slowest %.3f ms\n",
+                name, total / 1e9, nanos[(int) (N * 0.999)] / 1e6, nanos[N - 1] / 1e6);
+    }
+}
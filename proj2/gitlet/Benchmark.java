@@ -0,0 +1,217 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static gitlet.Utils.*;
+
+/** Times gitlet commands on a generated repository and prints the results
+ *  as JSON, so that runs of different builds can be compared.
+ *
+ *  Usage: java gitlet.Benchmark [shape options] [--iterations N]
+ *             [--warmup N] [--daemon] [--dir DIR] [--out FILE]
+ *  The shape options (--files, --commits, --branches, ...) are those of
+ *  SyntheticRepo.Shape.  The repository is built in DIR, which must not
+ *  exist yet, or in a temporary directory that is deleted afterwards.
+ *
+ *  add, commit, status, log, checkout and merge are each run WARMUP times
+ *  unmeasured, so that the JIT has compiled the code they run, and then
+ *  ITERATIONS times measured.  Commands run in this JVM, each on a new
+ *  Repository as a separate process would (but without starting a JVM),
+ *  or with --daemon all on one Repository, as under a Daemon.  Whatever a
+ *  command needs set up (changed files for add, a diverged branch for
+ *  merge) is done outside the measured time.  The result is
+ *      {"shape": {...}, "daemon": ..., "warmup": ..., "iterations": ...,
+ *       "generateMillis": ..., "results": {"add": {"minMillis": ...,
+ *       "medianMillis": ..., "meanMillis": ..., "maxMillis": ...}, ...}}
+ *
+ *  @author Colin Wang
+ */
+public class Benchmark {
+    /** The commands measured, in the order they are run. */
+    private static final List<String> COMMANDS = List.of("add", "commit", "status", "log", "checkout", "merge");
+
+    private final SyntheticRepo repo;
+    private final int iterations;
+    private final int warmup;
+    /** The measured times of each command, in nanoseconds. */
+    private final Map<String, List<Long>> times = new LinkedHashMap<>();
+    private int merges;
+
+    private Benchmark(SyntheticRepo repo, int iterations, int warmup) {
+        this.repo = repo;
+        this.iterations = iterations;
+        this.warmup = warmup;
+        for (String command : COMMANDS) {
+            times.put(command, new ArrayList<>());
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            run(args);
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+        }
+    }
+
+    private static void run(String[] args) {
+        List<String> rest = new ArrayList<>();
+        SyntheticRepo.Shape shape = SyntheticRepo.Shape.parse(args, 0, rest);
+        if (shape == null) {
+            throw error("Incorrect operands.");
+        }
+        int iterations = 10;
+        int warmup = 3;
+        boolean daemon = false;
+        File dir = null;
+        File out = null;
+        for (int i = 0; i < rest.size(); i += 1) {
+            String option = rest.get(i);
+            if (option.equals("--daemon")) {
+                daemon = true;
+                continue;
+            }
+            if (i + 1 == rest.size()) {
+                throw error("Incorrect operands.");
+            }
+            i += 1;
+            String value = rest.get(i);
+            try {
+                switch (option) {
+                    case "--iterations" -> iterations = Integer.parseInt(value);
+                    case "--warmup" -> warmup = Integer.parseInt(value);
+                    case "--dir" -> dir = new File(value);
+                    case "--out" -> out = new File(value);
+                    default -> throw error("Incorrect operands.");
+                }
+            } catch (NumberFormatException excp) {
+                throw error("Incorrect operands.");
+            }
+        }
+        if (iterations < 1 || warmup < 0) {
+            throw error("Incorrect operands.");
+        }
+        boolean temporary = dir == null;
+        try {
+            dir = temporary ? Files.createTempDirectory("gitlet-bench").toFile() : dir;
+        } catch (IOException excp) {
+            throw error("Cannot create a directory for the repository.");
+        }
+        if (!temporary && !dir.mkdirs()) {
+            throw error("%s already exists.", dir);
+        }
+        try {
+            SyntheticRepo repo = new SyntheticRepo(dir.getAbsoluteFile(), shape, daemon);
+            long start = System.nanoTime();
+            repo.generate();
+            long generateNanos = System.nanoTime() - start;
+            Benchmark benchmark = new Benchmark(repo, iterations, warmup);
+            benchmark.measure();
+            String json = benchmark.toJson(shape, daemon, generateNanos);
+            if (out == null) {
+                System.out.println(json);
+            } else {
+                writeContents(out, json + "\n");
+            }
+        } finally {
+            if (temporary) {
+                deleteAll(dir.toPath());
+            }
+        }
+    }
+
+    /** Runs every command WARMUP times and then ITERATIONS times, keeping
+     *  the times of the latter. */
+    private void measure() {
+        repo.run("branch", "bench");
+        repo.checkout("bench");
+        repo.add(repo.changeFiles(10));
+        repo.run("commit", "Bench branch");
+        repo.checkout("master");
+        for (int i = 0; i < warmup + iterations; i += 1) {
+            boolean measured = i >= warmup;
+            String[] changed = repo.changeFiles(10);
+            time("add", measured, () -> repo.add(changed));
+            time("commit", measured, () -> repo.run("commit", "Bench commit"));
+            time("status", measured, () -> repo.run("status"));
+            time("log", measured, () -> repo.run("log"));
+            time("checkout", measured, () -> repo.run("checkout", "bench"));
+            repo.checkout("master");
+            String branch = prepareMerge();
+            time("merge", measured, () -> repo.run("merge", branch));
+            repo.checkout("master");
+        }
+    }
+
+    /** Makes a branch that diverged from master by a commit on each side,
+     *  and returns its name. */
+    private String prepareMerge() {
+        String branch = "merge" + merges;
+        merges += 1;
+        repo.run("branch", branch);
+        repo.checkout(branch);
+        repo.add(repo.changeFiles(10));
+        repo.run("commit", "Bench merge");
+        repo.checkout("master");
+        repo.add(repo.changeFiles(10));
+        repo.run("commit", "Bench master");
+        return branch;
+    }
+
+    /** Runs COMMAND, recording how long it took as a time of NAME if
+     *  MEASURED. */
+    private void time(String name, boolean measured, Runnable command) {
+        long start = System.nanoTime();
+        command.run();
+        long elapsed = System.nanoTime() - start;
+        if (measured) {
+            times.get(name).add(elapsed);
+        }
+    }
+
+    private String toJson(SyntheticRepo.Shape shape, boolean daemon, long generateNanos) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"shape\": {").append(shape.toJson()).append("}, ");
+        sb.append("\"daemon\": ").append(daemon).append(", ");
+        sb.append("\"warmup\": ").append(warmup).append(", ");
+        sb.append("\"iterations\": ").append(iterations).append(", ");
+        sb.append("\"generateMillis\": ").append(millis(generateNanos)).append(", ");
+        sb.append("\"results\": {");
+        String separator = "";
+        for (Map.Entry<String, List<Long>> item : times.entrySet()) {
+            long[] sorted = item.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            long mean = (long) Arrays.stream(sorted).average().orElse(0);
+            sb.append(separator).append('"').append(item.getKey()).append("\": {")
+                    .append("\"minMillis\": ").append(millis(sorted[0])).append(", ")
+                    .append("\"medianMillis\": ").append(millis(sorted[sorted.length / 2])).append(", ")
+                    .append("\"meanMillis\": ").append(millis(mean)).append(", ")
+                    .append("\"maxMillis\": ").append(millis(sorted[sorted.length - 1])).append('}');
+            separator = ", ";
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static void deleteAll(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException excp) {
+            // Only a temporary directory is left behind.
+        }
+    }
+}
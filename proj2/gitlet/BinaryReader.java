@@ -0,0 +1,80 @@
+package gitlet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static gitlet.Utils.*;
+
+/** Reads the binary form of gitlet objects written by BinaryWriter: a tag
+ *  byte naming the kind of object, a format version, and the fields of the
+ *  object in a fixed order.  Fields can be skipped, so a reader only needs
+ *  to decode as far as the last field it wants.
+ *
+ *  @author Colin Wang
+ */
+class BinaryReader {
+    private final ByteBuffer in;
+
+    /** Reads DATA, which must hold an object of kind TAG in format
+     *  VERSION. */
+    BinaryReader(byte[] data, int tag, int version) {
+        this.in = ByteBuffer.wrap(data);
+        if (data.length == 0 || in.get() != tag || readVarint() != version) {
+            throw error("Unsupported object format.");
+        }
+    }
+
+    /** Reads DATA, which has no header. */
+    BinaryReader(byte[] data) {
+        this.in = ByteBuffer.wrap(data);
+    }
+
+    boolean hasRemaining() {
+        return in.hasRemaining();
+    }
+
+    long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    int readInt() {
+        return Math.toIntExact(readVarint());
+    }
+
+    int readByte() {
+        return in.get() & 0xff;
+    }
+
+    void readBytes(byte[] dest, int offset, int length) {
+        in.get(dest, offset, length);
+    }
+
+    String readString() {
+        int length = readInt();
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    void skipString() {
+        int length = readInt();
+        in.position(in.position() + length);
+    }
+
+    String readId() {
+        byte[] raw = new byte[UID_LENGTH / 2];
+        in.get(raw);
+        return hexId(raw);
+    }
+
+    void skipId() {
+        in.position(in.position() + UID_LENGTH / 2);
+    }
+}
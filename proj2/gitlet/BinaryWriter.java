@@ -0,0 +1,63 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static gitlet.Utils.*;
+
+/** Builds the binary form of a gitlet object (see BinaryReader).  Numbers
+ *  are varints, strings are a varint length and UTF-8 bytes, and ids are
+ *  their 20 raw bytes.
+ *
+ *  @author Colin Wang
+ */
+class BinaryWriter {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    /** Starts an object of kind TAG in format VERSION. */
+    BinaryWriter(int tag, int version) {
+        out.write(tag);
+        writeVarint(version);
+    }
+
+    /** A writer for data with no header, e.g. a Delta. */
+    BinaryWriter() {
+    }
+
+    /** Writes VALUE, which must not be negative, 7 bits per byte with the
+     *  high bit set on all but the last byte. */
+    BinaryWriter writeVarint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+        return this;
+    }
+
+    BinaryWriter writeByte(int value) {
+        out.write(value);
+        return this;
+    }
+
+    BinaryWriter writeBytes(byte[] data, int offset, int length) {
+        out.write(data, offset, length);
+        return this;
+    }
+
+    BinaryWriter writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        out.writeBytes(bytes);
+        return this;
+    }
+
+    BinaryWriter writeId(String id) {
+        out.writeBytes(rawId(id));
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
@@ -1,48 +1,109 @@
 package gitlet;
 
 import java.io.File;
-import java.io.Serializable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.DeflaterOutputStream;
 
 import static gitlet.Utils.*;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
  * Represent a file object.
+ *
+ * The content of a blob is never held in memory: its id is computed by
+ * feeding the file through a fixed-size buffer into SHA-1, and it is stored
+ * zlib-deflated the same way.
  */
-public class Blob implements Serializable {
+public class Blob {
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private final String filename;
+    private final File file;
     private final String id;
-    private final byte[] content;
 
-    public Blob(String filename, File CWD) {
+    /** A blob of the working file FILENAME whose id is already known to be
+     *  ID, e.g. from the index. */
+    public Blob(String filename, File CWD, String id) {
         this.filename = filename;
-        File file = join(CWD, filename);
-        if (file.exists()) {
-            this.content = readContents(file);
-            this.id = sha1(filename, content);
-        } else {
-            this.content = null;
-            this.id = sha1(filename);
-        }
-    }
-
-    public boolean exists() {
-        return this.content != null;
+        this.file = join(CWD, filename);
+        this.id = id;
     }
 
     public String getFilename() {
         return filename;
     }
 
-    public byte[] getContent() {
-        return content;
+    public String getId() {
+        return id;
+    }
+
+    /** Stores the deflated content of this blob's file as TARGET.  Fails if
+     *  the file changed since its id was computed. */
+    public void writeTo(File target) {
+        File temp = join(target.getParentFile(), target.getName() + ".tmp");
+        MessageDigest md = newDigest(filename);
+        try (InputStream in = Files.newInputStream(file.toPath());
+             OutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp.toPath()))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                md.update(buffer, 0, n);
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException excp) {
+            temp.delete();
+            throw error("Cannot store %s.", filename);
+        }
+        if (!hexId(md.digest()).equals(id)) {
+            temp.delete();
+            throw error("%s changed while it was being added.", filename);
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw error("Cannot store %s.", filename);
+        }
+    }
+
+    /** Returns the id of FILE, whose name in the repository is FILENAME. */
+    static String hashFile(String filename, File file) {
+        MessageDigest md = newDigest(filename);
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                md.update(buffer, 0, n);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return hexId(md.digest());
     }
 
-    public String getContentAsString() {
-        return new String(content, StandardCharsets.UTF_8);    
+    private static MessageDigest newDigest(String filename) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(filename.getBytes(StandardCharsets.UTF_8));
+            return md;
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
     }
 
-    public String getId() {
-        return id;
+    /** Writes the blob content CONTENT to FILE, creating or overwriting it.
+     *  Closes CONTENT. */
+    static void writeContentTo(InputStream content, File file) {
+        try (InputStream in = content;
+             OutputStream out = Files.newOutputStream(file.toPath())) {
+            in.transferTo(out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
     }
 }
@@ -0,0 +1,56 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** The thin client of Daemon: java gitlet.Client ARGS does what
+ *  java gitlet.Main ARGS does, but has the daemon of the repository in the
+ *  current directory run the command if one is running.  Only this class
+ *  is loaded then, so the command costs little more than starting the JVM.
+ *
+ *  @author Colin Wang
+ */
+public class Client {
+    public static void main(String[] args) {
+        if (!forward(args)) {
+            Main.main(args);
+        }
+    }
+
+    /** Sends ARGS to the daemon and prints its reply.  Returns false if no
+     *  daemon is running here. */
+    static boolean forward(String[] args) {
+        String cwd = System.getProperty("user.dir");
+        Path socket = Path.of(cwd, ".gitlet", Daemon.SOCKET);
+        if (!Files.exists(socket)) {
+            return false;
+        }
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            request.writeBytes(cwd.getBytes(StandardCharsets.UTF_8));
+            request.write(0);
+            for (String arg : args) {
+                request.writeBytes(arg.getBytes(StandardCharsets.UTF_8));
+                request.write(0);
+            }
+            ByteBuffer buf = ByteBuffer.wrap(request.toByteArray());
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.shutdownOutput();
+            Channels.newInputStream(channel).transferTo(System.out);
+            System.out.flush();
+            return true;
+        } catch (IOException excp) {
+            // The socket was left by a daemon that is gone.
+            return false;
+        }
+    }
+}
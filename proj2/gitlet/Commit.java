@@ -1,6 +1,5 @@
 package gitlet;
 
-import java.io.Serializable;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -8,10 +7,18 @@ import java.util.*;
 import static gitlet.Utils.*;
 
 /** Represents a gitlet commit object.
+ *
+ *  A commit is stored as (see BinaryWriter)
+ *      ['C'][version][parent count][parent ids][tree id][time in ms][message]
+ *  Parents and tree come first so that walks over the history can stop
+ *  decoding there (see readParents and readTree).
  *
  *  @author Colin Wang
  */
-public class Commit implements Serializable {
+public class Commit {
+    private static final int TAG = 'C';
+    private static final int VERSION = 1;
+
     /*
       List all instance variables of the Commit class here with a useful
       comment above them describing what that variable represents and how that
@@ -26,8 +33,8 @@ public class Commit implements Serializable {
 
     private final List<String> parents;
 
-    /** The file this Commit tracks (filename, blobId)*/
-    private final HashMap<String, String> blobs;
+    /** The id of the root tree of the files this Commit tracks. */
+    private final String tree;
 
     private final String id;
 
@@ -35,41 +42,91 @@ public class Commit implements Serializable {
         this.message = "initial commit";
         this.timestamp = new Date(0);
         this.parents = new LinkedList<>();
-        this.blobs = new HashMap<>();
+        this.tree = Tree.EMPTY_ID;
         this.id = sha1(message, timestamp.toString());
     }
 
-    public Commit(String message, List<Commit> parents, Stage stage) {
+    private Commit(String id, String message, Date timestamp, List<String> parents, String tree) {
+        this.id = id;
+        this.message = message;
+        this.timestamp = timestamp;
+        this.parents = parents;
+        this.tree = tree;
+    }
+
+    public Commit(String message, List<Commit> parents, String tree) {
         this.message = message;
         this.timestamp = new Date();
         this.parents = new ArrayList<>(2);
         for (Commit p : parents) {
             this.parents.add(p.getID());
         }
-        this.blobs = parents.get(0).getBlobs();
-        for (Map.Entry<String, String> item : stage.getAdded().entrySet()) {
-            String filename = item.getKey();
-            String blobId = item.getValue();
-            blobs.put(filename, blobId);
+        this.tree = tree;
+        this.id = sha1(message, timestamp.toString(), this.parents.toString(), tree);
+    }
+
+    /** Returns the stored form of this commit. */
+    byte[] encode() {
+        BinaryWriter out = new BinaryWriter(TAG, VERSION);
+        out.writeVarint(parents.size());
+        for (String parent : parents) {
+            out.writeId(parent);
         }
-        for (String filename : stage.getRemoved()) {
-            blobs.remove(filename);
+        out.writeId(tree).writeVarint(timestamp.getTime()).writeString(message);
+        return out.toByteArray();
+    }
+
+    /** Returns the commit ID whose stored form is DATA. */
+    static Commit decode(String id, byte[] data) {
+        BinaryReader in = new BinaryReader(data, TAG, VERSION);
+        List<String> parents = readParents(in);
+        String tree = in.readId();
+        Date timestamp = new Date(in.readVarint());
+        return new Commit(id, in.readString(), timestamp, parents, tree);
+    }
+
+    /** Returns the parent ids of the commit stored as DATA, decoding
+     *  nothing else. */
+    static List<String> readParents(byte[] data) {
+        return readParents(new BinaryReader(data, TAG, VERSION));
+    }
+
+    private static List<String> readParents(BinaryReader in) {
+        int n = in.readInt();
+        List<String> parents = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            parents.add(in.readId());
         }
-        this.id = sha1(message, timestamp.toString(), parents.toString(), blobs.toString());
+        return parents;
+    }
+
+    /** Returns the tree id of the commit stored as DATA, decoding nothing
+     *  after it. */
+    static String readTree(byte[] data) {
+        BinaryReader in = new BinaryReader(data, TAG, VERSION);
+        int n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            in.skipId();
+        }
+        return in.readId();
     }
 
     public String getID() {
         return id;
     }
 
-    public HashMap<String, String> getBlobs() {
-        return this.blobs;
+    public String getTree() {
+        return this.tree;
     }
 
     public String getMessage() {
         return this.message;
     }
 
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
     public List<String> getParents() {
         return parents;
     }
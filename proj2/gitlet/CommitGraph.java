@@ -0,0 +1,259 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import static gitlet.Utils.*;
+
+/** The shape of the commit history, kept in .gitlet/commit-graph so that
+ *  ancestry questions never have to read commit objects.
+ *
+ *  The file is a header ("GGRF", version) followed by one fixed-size record
+ *  per commit, in the order the commits were added (parents always come
+ *  before their children):
+ *      [raw id (20 bytes)][first parent][second parent][generation][time]
+ *  Parents are positions of earlier records (-1 if absent), the generation
+ *  of a commit is 1 + the largest generation of its parents (1 for the
+ *  initial commit), and time is the commit time in milliseconds.  New
+ *  commits are appended, so the file never has to be rewritten.
+ *
+ *  @author Colin Wang
+ */
+class CommitGraph {
+    private static final int MAGIC = 0x47475246;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+    private static final int RECORD_LENGTH = PackFile.RAW_ID_LENGTH + 4 * 3 + 8;
+
+    private static final byte PARENT1 = 1;
+    private static final byte PARENT2 = 2;
+    private static final byte STALE = 4;
+    private static final byte RESULT = 8;
+
+    private final File file;
+    private int size;
+    private byte[] ids;
+    private int[] parents;
+    private int[] generations;
+    private long[] times;
+    /** Maps ids to positions, built on first lookup. */
+    private HashMap<String, Integer> positions;
+
+    CommitGraph(File file) {
+        this.file = file;
+        ByteBuffer buf = ByteBuffer.wrap(file.isFile() ? readContents(file) : new byte[0]);
+        if (buf.limit() >= HEADER_LENGTH && (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)) {
+            throw error("Corrupt commit graph.");
+        }
+        // A record cut short by a crash is ignored; it is rewritten on the
+        // next add.
+        int n = Math.max(0, (buf.limit() - HEADER_LENGTH) / RECORD_LENGTH);
+        ids = new byte[n * PackFile.RAW_ID_LENGTH];
+        parents = new int[n * 2];
+        generations = new int[n];
+        times = new long[n];
+        for (int i = 0; i < n; i += 1) {
+            buf.position(HEADER_LENGTH + i * RECORD_LENGTH);
+            buf.get(ids, i * PackFile.RAW_ID_LENGTH, PackFile.RAW_ID_LENGTH);
+            parents[2 * i] = buf.getInt();
+            parents[2 * i + 1] = buf.getInt();
+            generations[i] = buf.getInt();
+            times[i] = buf.getLong();
+        }
+        size = n;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Returns the position of commit ID, or -1 if it is not in the graph. */
+    int find(String id) {
+        if (positions == null) {
+            positions = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i += 1) {
+                positions.put(getId(i), i);
+            }
+        }
+        return positions.getOrDefault(id, -1);
+    }
+
+    String getId(int pos) {
+        return hexId(Arrays.copyOfRange(ids, pos * PackFile.RAW_ID_LENGTH,
+                (pos + 1) * PackFile.RAW_ID_LENGTH));
+    }
+
+    int getGeneration(int pos) {
+        return generations[pos];
+    }
+
+    long getTime(int pos) {
+        return times[pos];
+    }
+
+    /** Returns the positions of the parents of POS, first parent first. */
+    int[] getParents(int pos) {
+        if (parents[2 * pos] < 0) {
+            return new int[0];
+        } else if (parents[2 * pos + 1] < 0) {
+            return new int[] {parents[2 * pos]};
+        }
+        return new int[] {parents[2 * pos], parents[2 * pos + 1]};
+    }
+
+    /** Appends COMMIT, whose parents must already be in the graph, and
+     *  returns its position. */
+    int add(Commit commit) {
+        int pos = find(commit.getID());
+        if (pos >= 0) {
+            return pos;
+        }
+        List<String> parentIds = commit.getParents();
+        int p1 = parentIds.size() > 0 ? find(parentIds.get(0)) : -1;
+        int p2 = parentIds.size() > 1 ? find(parentIds.get(1)) : -1;
+        if ((parentIds.size() > 0 && p1 < 0) || (parentIds.size() > 1 && p2 < 0)) {
+            throw error("Parent of %s is missing from the commit graph.", commit.getID());
+        }
+        int generation = 1 + Math.max(p1 < 0 ? 0 : generations[p1], p2 < 0 ? 0 : generations[p2]);
+        long time = commit.getTimestamp().getTime();
+        byte[] rawId = rawId(commit.getID());
+        append(rawId, p1, p2, generation, time);
+
+        pos = size;
+        grow(pos + 1);
+        System.arraycopy(rawId, 0, ids, pos * PackFile.RAW_ID_LENGTH, PackFile.RAW_ID_LENGTH);
+        parents[2 * pos] = p1;
+        parents[2 * pos + 1] = p2;
+        generations[pos] = generation;
+        times[pos] = time;
+        positions.put(commit.getID(), pos);
+        size += 1;
+        return pos;
+    }
+
+    private void append(byte[] rawId, int p1, int p2, int generation, long time) {
+        long complete = HEADER_LENGTH + (long) size * RECORD_LENGTH;
+        try {
+            if (file.length() != complete) {
+                truncate(complete);
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                if (size == 0) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                out.write(rawId);
+                out.writeInt(p1);
+                out.writeInt(p2);
+                out.writeInt(generation);
+                out.writeLong(time);
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write commit graph.");
+        }
+    }
+
+    /** Cuts the file back to its first LENGTH bytes, dropping a partial
+     *  record. */
+    private void truncate(long length) throws IOException {
+        if (size == 0) {
+            file.delete();
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.getChannel().truncate(length);
+        }
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= generations.length) {
+            return;
+        }
+        int n = Math.max(capacity, generations.length * 2);
+        ids = Arrays.copyOf(ids, n * PackFile.RAW_ID_LENGTH);
+        parents = Arrays.copyOf(parents, n * 2);
+        generations = Arrays.copyOf(generations, n);
+        times = Arrays.copyOf(times, n);
+    }
+
+    /** Returns the position of the latest common ancestor of the commits at
+     *  A and B.  Commits are visited highest generation first and the walk
+     *  stops as soon as every commit left to visit is known to be below a
+     *  common ancestor, so only the history between the tips and their
+     *  merge base is touched.  If there are several best common ancestors
+     *  (criss-cross merges), the one closest to B is returned. */
+    int mergeBase(int a, int b) {
+        byte[] flags = new byte[size];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+                (x, y) -> Integer.compare(generations[y], generations[x]));
+        flags[a] |= PARENT1;
+        flags[b] |= PARENT2;
+        queue.add(a);
+        queue.add(b);
+        List<Integer> bases = new ArrayList<>();
+        while (hasNonStale(queue, flags)) {
+            int pos = queue.poll();
+            int f = flags[pos] & (PARENT1 | PARENT2 | STALE);
+            if (f == (PARENT1 | PARENT2)) {
+                if ((flags[pos] & RESULT) == 0) {
+                    flags[pos] |= RESULT;
+                    bases.add(pos);
+                }
+                f |= STALE;
+            }
+            for (int parent : getParents(pos)) {
+                if ((flags[parent] & f) != f) {
+                    flags[parent] |= f;
+                    queue.add(parent);
+                }
+            }
+        }
+        if (bases.size() <= 1) {
+            return bases.isEmpty() ? -1 : bases.get(0);
+        }
+        return closestTo(b, bases, flags);
+    }
+
+    private static boolean hasNonStale(Queue<Integer> queue, byte[] flags) {
+        for (int pos : queue) {
+            if ((flags[pos] & STALE) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the element of BASES (all flagged RESULT in FLAGS) that a
+     *  breadth-first walk from FROM reaches first. */
+    private int closestTo(int from, List<Integer> bases, byte[] flags) {
+        boolean[] seen = new boolean[size];
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+        seen[from] = true;
+        while (!queue.isEmpty()) {
+            int pos = queue.poll();
+            if ((flags[pos] & RESULT) != 0) {
+                return pos;
+            }
+            for (int parent : getParents(pos)) {
+                if (!seen[parent]) {
+                    seen[parent] = true;
+                    queue.add(parent);
+                }
+            }
+        }
+        return bases.get(0);
+    }
+}
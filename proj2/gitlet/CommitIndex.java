@@ -0,0 +1,192 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/** The ids of all commits in sorted order, kept in .gitlet/commit-index so
+ *  that an abbreviated id can be resolved by binary search instead of
+ *  listing every commit.
+ *
+ *  The file is "GCIX", version, count, a 256-entry fanout table (number of
+ *  ids whose first byte is <= i) and the sorted 20-byte ids.  It is
+ *  memory-mapped for lookups and rewritten, through a temporary file, when
+ *  commits are added.
+ *
+ *  @author Colin Wang
+ */
+class CommitIndex {
+    private static final int MAGIC = 0x47434958;
+    private static final int VERSION = 1;
+    private static final int FANOUT_START = 12;
+    private static final int IDS_START = FANOUT_START + 256 * 4;
+    private static final int RAW_ID_LENGTH = PackFile.RAW_ID_LENGTH;
+
+    /** Returned by resolve() when a prefix matches more than one commit. */
+    static final String AMBIGUOUS = "ambiguous";
+
+    private final File file;
+    private ByteBuffer index;
+    private int count;
+
+    CommitIndex(File file) {
+        this.file = file;
+        load();
+    }
+
+    /** Returns true if the index file exists. */
+    boolean exists() {
+        return file.isFile();
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            index = ByteBuffer.allocate(IDS_START);
+            count = 0;
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                throw error("Corrupt commit index.");
+            }
+            index = mapped;
+            count = mapped.getInt(8);
+        } catch (IOException excp) {
+            throw error("Cannot read commit index.");
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    String getId(int pos) {
+        byte[] raw = new byte[RAW_ID_LENGTH];
+        index.get(IDS_START + pos * RAW_ID_LENGTH, raw);
+        return hexId(raw);
+    }
+
+    /** Returns all ids, in order. */
+    List<String> ids() {
+        List<String> res = new ArrayList<>(count);
+        for (int pos = 0; pos < count; pos += 1) {
+            res.add(getId(pos));
+        }
+        return res;
+    }
+
+    /** Returns the position of the first id that is >= RAWID. */
+    private int lowerBound(byte[] rawId) {
+        int first = rawId[0] & 0xff;
+        int lo = first == 0 ? 0 : index.getInt(FANOUT_START + (first - 1) * 4);
+        int hi = count == 0 ? 0 : index.getInt(FANOUT_START + first * 4);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareId(mid, rawId) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int compareId(int pos, byte[] rawId) {
+        int base = IDS_START + pos * RAW_ID_LENGTH;
+        for (int i = 0; i < RAW_ID_LENGTH; i += 1) {
+            int cmp = Integer.compare(index.get(base + i) & 0xff, rawId[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the full id of the only commit whose id starts with PREFIX,
+     *  null if there is none, or AMBIGUOUS if there are several. */
+    String resolve(String prefix) {
+        prefix = prefix.toLowerCase();
+        if (prefix.isEmpty() || prefix.length() > UID_LENGTH || !prefix.matches("[0-9a-f]*")) {
+            return null;
+        }
+        StringBuilder lowest = new StringBuilder(prefix);
+        while (lowest.length() < UID_LENGTH) {
+            lowest.append('0');
+        }
+        int pos = lowerBound(rawId(lowest.toString()));
+        if (pos >= count || !getId(pos).startsWith(prefix)) {
+            return null;
+        }
+        if (pos + 1 < count && getId(pos + 1).startsWith(prefix)) {
+            return AMBIGUOUS;
+        }
+        return getId(pos);
+    }
+
+    /** Adds the commit ids IDS and rewrites the index file. */
+    void addAll(Collection<String> ids) {
+        List<byte[]> added = new ArrayList<>();
+        for (String id : ids) {
+            byte[] raw = rawId(id);
+            int pos = lowerBound(raw);
+            if (pos >= count || compareId(pos, raw) != 0) {
+                added.add(raw);
+            }
+        }
+        if (added.isEmpty() && exists()) {
+            return;
+        }
+        added.sort(Arrays::compareUnsigned);
+        int n = count + added.size();
+        ByteBuffer buf = ByteBuffer.allocate(IDS_START + n * RAW_ID_LENGTH);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(n);
+        buf.position(IDS_START);
+        int[] fanout = new int[256];
+        byte[] old = new byte[RAW_ID_LENGTH];
+        int i = 0;
+        int j = 0;
+        while (i < count || j < added.size()) {
+            byte[] next;
+            if (i < count) {
+                index.get(IDS_START + i * RAW_ID_LENGTH, old);
+            }
+            if (j >= added.size() || (i < count && Arrays.compareUnsigned(old, added.get(j)) < 0)) {
+                next = old;
+                i += 1;
+            } else {
+                next = added.get(j);
+                j += 1;
+            }
+            fanout[next[0] & 0xff] += 1;
+            buf.put(next);
+        }
+        buf.position(FANOUT_START);
+        int total = 0;
+        for (int k = 0; k < 256; k += 1) {
+            total += fanout[k];
+            buf.putInt(total);
+        }
+        try {
+            // Readers holding the repository lock shared may rebuild the
+            // index together, so each writes its own temporary file.
+            File temp = File.createTempFile(file.getName() + "-", ".tmp", file.getParentFile());
+            writeContents(temp, (Object) buf.array());
+            Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw error("Cannot write commit index.");
+        }
+        load();
+    }
+}
@@ -0,0 +1,114 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** The settings stored in .gitlet/config, one "key = value" per line.
+ *  Blank lines and lines starting with '#' are ignored.
+ *
+ *  @author Colin Wang
+ */
+class Config {
+    /** Number of threads used to hash working files.  Defaults to the
+     *  number of available processors. */
+    static final String PARALLELISM = "core.parallelism";
+    /** The longest chain of deltas "gc --delta" builds.  Defaults to 10. */
+    static final String DELTA_DEPTH = "pack.deltaDepth";
+    /** How long, in milliseconds, a command waits for another one to
+     *  release the repository (see RepoLock).  Defaults to 10000. */
+    static final String LOCK_TIMEOUT = "core.lockTimeout";
+
+    private final LinkedHashMap<String, String> values = new LinkedHashMap<>();
+    /** The lines of the file as they were read, so that rewriting it keeps
+     *  comments and order. */
+    private final List<String> lines = new ArrayList<>();
+
+    Config(File file) {
+        String content = file.isFile() ? readContentsAsString(file) : "";
+        if (content.isEmpty()) {
+            return;
+        }
+        for (String line : content.split("\n")) {
+            lines.add(line);
+            line = line.trim();
+            int eq = line.indexOf('=');
+            if (line.isEmpty() || line.startsWith("#") || eq < 0) {
+                continue;
+            }
+            values.put(line.substring(0, eq).trim(), line.substring(eq + 1).trim());
+        }
+    }
+
+    /** Returns the key under which the directory of the remote NAME is
+     *  kept (see Repository.addRemote). */
+    static String remoteDir(String name) {
+        return "remote." + name + ".dir";
+    }
+
+    String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException excp) {
+            throw error("Bad value for %s in config: %s", key, value);
+        }
+    }
+
+    Map<String, String> getAll() {
+        return values;
+    }
+
+    /** Sets KEY to VALUE, in place of its old line if it had one. */
+    void set(String key, String value) {
+        String line = key + " = " + value;
+        int i = find(key);
+        if (i < 0) {
+            lines.add(line);
+        } else {
+            lines.set(i, line);
+        }
+        values.put(key, value);
+    }
+
+    /** Removes KEY. */
+    void unset(String key) {
+        int i = find(key);
+        while (i >= 0) {
+            lines.remove(i);
+            i = find(key);
+        }
+        values.remove(key);
+    }
+
+    private int find(String key) {
+        for (int i = 0; i < lines.size(); i += 1) {
+            String line = lines.get(i).trim();
+            int eq = line.indexOf('=');
+            if (!line.startsWith("#") && eq >= 0 && line.substring(0, eq).trim().equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the content of the config file with the changes made. */
+    String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** Serves gitlet commands for one repository from a single long-running
+ *  JVM, so that a command does not pay for starting a JVM, loading classes
+ *  and reading the commit graph and indexes again.  Started by
+ *  "java gitlet.Main daemon" in the repository and stopped by
+ *  "java gitlet.Main daemon stop".
+ *
+ *  The daemon listens on the Unix-domain socket .gitlet/daemon.sock and
+ *  serves one connection at a time.  A request is the directory the client
+ *  runs in followed by the command's arguments, each ended by a NUL byte;
+ *  the client then shuts down its side of the connection.  The reply is
+ *  exactly what the command would have printed, after which the daemon
+ *  closes the connection.  Client is the thin client; from a shell,
+ *      printf '%s\0log\0' "$PWD" | nc -U -N .gitlet/daemon.sock
+ *  does the same.
+ *
+ *  Other processes may change the repository between requests, so each
+ *  time a command takes the repository lock, the repository drops whatever
+ *  it loaded from files that changed since it last released it (see
+ *  Repository.lock).
+ *
+ *  @author Colin Wang
+ */
+class Daemon {
+    static final String SOCKET = "daemon.sock";
+
+    private final Repository repo;
+    private final File socket;
+    private final String cwd;
+
+    Daemon(Repository repo) {
+        this.repo = repo;
+        this.cwd = System.getProperty("user.dir");
+        this.socket = join(cwd, ".gitlet", SOCKET);
+    }
+
+    /** Serves requests until one asks the daemon to stop.  Each command
+     *  locks the repository as usual, so the daemon and other gitlet
+     *  processes can take turns. */
+    void serve() {
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            // A socket left by a daemon that died would make bind fail.
+            Files.deleteIfExists(socket.toPath());
+            server.bind(UnixDomainSocketAddress.of(socket.toPath()));
+            socket.deleteOnExit();
+            repo.markLoaded();
+            boolean running = true;
+            while (running) {
+                try (SocketChannel client = server.accept()) {
+                    running = handle(client);
+                } catch (IOException excp) {
+                    // The client went away; serve the next one.
+                }
+            }
+        } catch (IOException excp) {
+            throw error("Cannot listen on %s.", socket);
+        } finally {
+            socket.delete();
+        }
+    }
+
+    /** Runs the request on CLIENT and sends back its output.  Returns false
+     *  if the daemon should stop. */
+    private boolean handle(SocketChannel client) throws IOException {
+        List<String> request = readRequest(Channels.newInputStream(client));
+        PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(client)),
+                false, StandardCharsets.UTF_8);
+        PrintStream stdout = System.out;
+        System.setOut(out);
+        try {
+            if (request.isEmpty() || !request.get(0).equals(cwd)) {
+                System.out.println("The daemon serves " + cwd + ".");
+                return true;
+            }
+            String[] args = request.subList(1, request.size()).toArray(new String[0]);
+            if (Arrays.equals(args, new String[] {"daemon", "stop"})) {
+                System.out.println("Daemon stopped.");
+                return false;
+            }
+            run(args);
+            return true;
+        } finally {
+            out.flush();
+            System.setOut(stdout);
+        }
+    }
+
+    private void run(String[] args) {
+        try {
+            Main.run(repo, args);
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+        } catch (RuntimeException excp) {
+            // Whatever was loaded may be half updated; start over.
+            System.out.println(excp);
+            repo.markChanged();
+        }
+    }
+
+    /** Returns the NUL-terminated strings read from IN until its end. */
+    private static List<String> readRequest(InputStream in) throws IOException {
+        List<String> res = new ArrayList<>();
+        ByteArrayOutputStream arg = new ByteArrayOutputStream();
+        for (int b = in.read(); b >= 0; b = in.read()) {
+            if (b == 0) {
+                res.add(arg.toString(StandardCharsets.UTF_8));
+                arg.reset();
+            } else {
+                arg.write(b);
+            }
+        }
+        return res;
+    }
+}
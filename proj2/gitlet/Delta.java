@@ -0,0 +1,143 @@
+package gitlet;
+
+import java.util.Arrays;
+
+/** Encodes a file as the differences from another version of it, the way
+ *  rsync and xdelta do.
+ *
+ *  The base is cut into BLOCK-byte blocks whose rolling hashes are put in a
+ *  table.  The target is scanned with the same rolling hash one byte at a
+ *  time; where a window matches a block of the base, the match is extended
+ *  in both directions and becomes a copy, and bytes that match nothing
+ *  become an insert.  A delta is
+ *      [base length][target length] then instructions
+ *      COPY   [0][base offset][length]
+ *      INSERT [1][length][bytes]
+ *  with every number a varint (see BinaryWriter).
+ *
+ *  @author Colin Wang
+ */
+class Delta {
+    private static final int BLOCK = 16;
+    private static final int COPY = 0;
+    private static final int INSERT = 1;
+    /** How many earlier blocks with the same hash are tried for a match. */
+    private static final int MAX_PROBES = 8;
+    private static final int PRIME = 0x01000193;
+    private static final int PRIME_POW_BLOCK = pow(PRIME, BLOCK);
+
+    private static int pow(int b, int e) {
+        int res = 1;
+        for (int i = 0; i < e; i += 1) {
+            res *= b;
+        }
+        return res;
+    }
+
+    /** Returns the delta that turns BASE into TARGET. */
+    static byte[] create(byte[] base, byte[] target) {
+        BinaryWriter out = new BinaryWriter();
+        out.writeVarint(base.length);
+        out.writeVarint(target.length);
+
+        int blocks = base.length / BLOCK;
+        int size = Integer.highestOneBit(Math.max(blocks, 1) * 2);
+        int[] heads = new int[size];
+        Arrays.fill(heads, -1);
+        int[] next = new int[blocks];
+        for (int b = 0; b < blocks; b += 1) {
+            int slot = hash(base, b * BLOCK) & (size - 1);
+            next[b] = heads[slot];
+            heads[slot] = b;
+        }
+
+        int insertStart = 0;
+        int pos = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (pos + BLOCK <= target.length) {
+            int bestOffset = -1;
+            int bestLength = 0;
+            int probes = 0;
+            for (int b = blocks == 0 ? -1 : heads[h & (size - 1)]; b >= 0 && probes < MAX_PROBES;
+                 b = next[b], probes += 1) {
+                int length = matchLength(base, b * BLOCK, target, pos);
+                if (length >= BLOCK && length > bestLength) {
+                    bestOffset = b * BLOCK;
+                    bestLength = length;
+                }
+            }
+            if (bestOffset < 0) {
+                if (pos + BLOCK < target.length) {
+                    h = roll(h, target[pos], target[pos + BLOCK]);
+                }
+                pos += 1;
+                continue;
+            }
+            // Take back the bytes just before the match that also match.
+            while (pos > insertStart && bestOffset > 0 && base[bestOffset - 1] == target[pos - 1]) {
+                pos -= 1;
+                bestOffset -= 1;
+                bestLength += 1;
+            }
+            writeInsert(out, target, insertStart, pos);
+            out.writeByte(COPY).writeVarint(bestOffset).writeVarint(bestLength);
+            pos += bestLength;
+            insertStart = pos;
+            if (pos + BLOCK <= target.length) {
+                h = hash(target, pos);
+            }
+        }
+        writeInsert(out, target, insertStart, target.length);
+        return out.toByteArray();
+    }
+
+    /** Returns the target that DELTA encodes against BASE. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        BinaryReader in = new BinaryReader(delta);
+        if (in.readVarint() != base.length) {
+            throw new IllegalArgumentException("delta does not match its base");
+        }
+        byte[] target = new byte[in.readInt()];
+        int pos = 0;
+        while (in.hasRemaining()) {
+            int op = in.readByte();
+            int offset = op == COPY ? in.readInt() : 0;
+            int length = in.readInt();
+            if (op == COPY) {
+                System.arraycopy(base, offset, target, pos, length);
+            } else {
+                in.readBytes(target, pos, length);
+            }
+            pos += length;
+        }
+        if (pos != target.length) {
+            throw new IllegalArgumentException("truncated delta");
+        }
+        return target;
+    }
+
+    private static void writeInsert(BinaryWriter out, byte[] target, int from, int to) {
+        if (from < to) {
+            out.writeByte(INSERT).writeVarint(to - from).writeBytes(target, from, to - from);
+        }
+    }
+
+    private static int matchLength(byte[] base, int baseOffset, byte[] target, int targetOffset) {
+        int n = Math.min(base.length - baseOffset, target.length - targetOffset);
+        int mismatch = Arrays.mismatch(base, baseOffset, baseOffset + n, target, targetOffset, targetOffset + n);
+        return mismatch < 0 ? n : mismatch;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int h = 0;
+        for (int i = 0; i < BLOCK; i += 1) {
+            h = h * PRIME + (data[offset + i] & 0xff);
+        }
+        return h;
+    }
+
+    /** Moves the window hashed by H one byte on, dropping OUT and taking IN. */
+    private static int roll(int h, byte out, byte in) {
+        return h * PRIME - (out & 0xff) * PRIME_POW_BLOCK + (in & 0xff);
+    }
+}
@@ -0,0 +1,174 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the stat data (size, mtime, inode) of working files together
+ * with their blob ids, like git's index, so that a file whose stat data did
+ * not change does not have to be read and hashed again.
+ *
+ * An entry is only trusted if the file was last modified strictly before the
+ * index itself was written: a file changed in the same clock tick as the
+ * index could otherwise keep its old size and mtime ("racily clean").
+ *
+ * The index is stored as (see BinaryWriter)
+ *     ['I'][version][entry count] then per file
+ *     [name][size][mtime in ns][inode, empty if unknown][blob id]
+ */
+public class Index {
+    private static final int TAG = 'I';
+    private static final int VERSION = 1;
+
+    // <filename, entry>
+    private final HashMap<String, Entry> entries;
+    /** The mtime (in ns) of the index file when it was read. */
+    private long writtenAt;
+    private boolean dirty;
+
+    private static class Entry {
+        private final long size;
+        private final long mtime;
+        private final String inode;
+        private final String blobId;
+
+        Entry(Stat stat, String blobId) {
+            this(stat.size, stat.mtime, stat.inode, blobId);
+        }
+
+        Entry(long size, long mtime, String inode, String blobId) {
+            this.size = size;
+            this.mtime = mtime;
+            this.inode = inode;
+            this.blobId = blobId;
+        }
+
+        boolean matches(Stat stat) {
+            return size == stat.size && mtime == stat.mtime && Objects.equals(inode, stat.inode);
+        }
+    }
+
+    /** The stat data of a working file. */
+    static class Stat {
+        private final long size;
+        private final long mtime;
+        private final String inode;
+
+        private Stat(BasicFileAttributes attrs) {
+            this.size = attrs.size();
+            this.mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            Object key = attrs.fileKey();
+            this.inode = key == null ? null : key.toString();
+        }
+
+        /** Returns the stat data of FILE, or null if it is not a plain file. */
+        static Stat of(File file) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                return attrs.isRegularFile() ? new Stat(attrs) : null;
+            } catch (IOException excp) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return size + "@" + mtime + "#" + inode;
+        }
+    }
+
+    public Index() {
+        entries = new HashMap<>();
+    }
+
+    /** Reads the index stored in FILE, or returns an empty one if there is
+     *  none yet. */
+    static Index read(File file) {
+        if (!file.isFile()) {
+            return new Index();
+        }
+        Index index = decode(Utils.readContents(file));
+        Stat stat = Stat.of(file);
+        index.writtenAt = stat == null ? 0 : stat.mtime;
+        return index;
+    }
+
+    /** Writes this index to FILE if it changed since it was read. */
+    void write(File file) {
+        if (dirty) {
+            // A crash must not leave half an index, which could not be read.
+            try {
+                File temp = File.createTempFile(file.getName() + "-", ".tmp", file.getParentFile());
+                Utils.writeContents(temp, (Object) encode());
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException excp) {
+                throw Utils.error("Cannot write the index.");
+            }
+            Stat stat = Stat.of(file);
+            writtenAt = stat == null ? 0 : stat.mtime;
+            dirty = false;
+        }
+    }
+
+    private byte[] encode() {
+        BinaryWriter out = new BinaryWriter(TAG, VERSION);
+        out.writeVarint(entries.size());
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            Entry entry = item.getValue();
+            out.writeString(item.getKey()).writeVarint(entry.size).writeVarint(entry.mtime)
+                    .writeString(entry.inode == null ? "" : entry.inode).writeId(entry.blobId);
+        }
+        return out.toByteArray();
+    }
+
+    private static Index decode(byte[] data) {
+        BinaryReader in = new BinaryReader(data, TAG, VERSION);
+        Index index = new Index();
+        int n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            String filename = in.readString();
+            long size = in.readVarint();
+            long mtime = in.readVarint();
+            String inode = in.readString();
+            index.entries.put(filename, new Entry(size, mtime, inode.isEmpty() ? null : inode, in.readId()));
+        }
+        return index;
+    }
+
+    /** Returns the cached blob id of FILENAME if STAT still matches what was
+     *  recorded for it, otherwise null. */
+    String lookup(String filename, Stat stat) {
+        Entry entry = entries.get(filename);
+        if (entry == null || !entry.matches(stat) || stat.mtime >= writtenAt) {
+            return null;
+        }
+        return entry.blobId;
+    }
+
+    /** Records that FILENAME, whose stat data is STAT, has id BLOBID. */
+    void update(String filename, Stat stat, String blobId) {
+        entries.put(filename, new Entry(stat, blobId));
+        dirty = true;
+    }
+
+    void remove(String filename) {
+        if (entries.remove(filename) != null) {
+            dirty = true;
+        }
+    }
+
+    /** Forgets every file that is not in FILENAMES. */
+    void retainAll(Set<String> filenames) {
+        if (entries.keySet().retainAll(filenames)) {
+            dirty = true;
+        }
+    }
+}
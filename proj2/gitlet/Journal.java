@@ -0,0 +1,209 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/** A transaction that replaces some of the small files of a repository
+ *  (the stage, HEAD, branch heads) all or nothing, after making the
+ *  objects they refer to durable.
+ *
+ *  Files are never written in place: each is written to a temporary file
+ *  that is renamed over it.  Commit
+ *      1. fsyncs the files passed to sync (e.g. new objects), then each of
+ *         their directories once;
+ *      2. writes every replacement to .gitlet/journal, followed by a CRC32
+ *         of the journal, and fsyncs it: this is when the transaction
+ *         commits;
+ *      3. replaces the files and fsyncs them and their directories; and
+ *      4. deletes the journal.
+ *  A crash before 2 finishes leaves a journal that fails its checksum and
+ *  is thrown away: the new objects are merely unreferenced.  A crash after
+ *  it leaves a complete journal that recover replays before the next
+ *  command.  A transaction that replaces just one file needs no journal,
+ *  since the rename is atomic.
+ *
+ *  Syncing every file of a step together, rather than each as it is
+ *  written, lets the file system flush them in one go, and a transaction
+ *  costs a fixed number of directory syncs however many objects it writes.
+ *
+ *  The journal is (see BinaryWriter)
+ *      ['J'][version][count] then per file [path in .gitlet][length][content]
+ *  and then the CRC32 of all that as 4 bytes.
+ *
+ *  @author Colin Wang
+ */
+class Journal {
+    private static final int TAG = 'J';
+    private static final int VERSION = 1;
+    private static final String NAME = "journal";
+
+    private final File gitletDir;
+    private final Set<File> toSync = new LinkedHashSet<>();
+    private final Map<File, byte[]> replacements = new LinkedHashMap<>();
+
+    Journal(File gitletDir) {
+        this.gitletDir = gitletDir;
+    }
+
+    /** Makes FILES reach the disk before any replacement does. */
+    void sync(Collection<File> files) {
+        toSync.addAll(files);
+    }
+
+    /** Replaces FILE, which must be in .gitlet, with CONTENT on commit. */
+    void replace(File file, byte[] content) {
+        replacements.put(file, content);
+    }
+
+    void replace(File file, String content) {
+        replace(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void commit() {
+        forceAll(toSync);
+        if (replacements.size() <= 1) {
+            apply(gitletDir, replacements);
+            return;
+        }
+        File journal = join(gitletDir, NAME);
+        BinaryWriter out = new BinaryWriter(TAG, VERSION);
+        out.writeVarint(replacements.size());
+        String prefix = gitletDir.getPath() + File.separator;
+        for (Map.Entry<File, byte[]> item : replacements.entrySet()) {
+            String path = item.getKey().getPath();
+            if (!path.startsWith(prefix)) {
+                throw new IllegalArgumentException(path + " is not in " + gitletDir);
+            }
+            byte[] content = item.getValue();
+            out.writeString(path.substring(prefix.length())).writeVarint(content.length)
+                    .writeBytes(content, 0, content.length);
+        }
+        byte[] data = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        byte[] record = ByteBuffer.allocate(data.length + 4).put(data).putInt((int) crc.getValue()).array();
+        writeContents(journal, (Object) record);
+        forceAll(List.of(journal));
+        apply(gitletDir, replacements);
+        journal.delete();
+    }
+
+    /** Returns whether the repository GITLETDIR has a transaction that a
+     *  crash interrupted, which recover must deal with. */
+    static boolean pending(File gitletDir) {
+        return join(gitletDir, NAME).isFile();
+    }
+
+    /** Finishes the transaction that a crash interrupted in the repository
+     *  GITLETDIR, if it had committed, and otherwise forgets it.  Must be
+     *  called while holding the repository lock exclusive. */
+    static void recover(File gitletDir) {
+        File journal = join(gitletDir, NAME);
+        if (!journal.isFile()) {
+            return;
+        }
+        byte[] record = readContents(journal);
+        Map<File, byte[]> replacements = null;
+        if (record.length > 4) {
+            ByteBuffer buf = ByteBuffer.wrap(record);
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, record.length - 4);
+            if ((int) crc.getValue() == buf.getInt(record.length - 4)) {
+                replacements = decode(gitletDir, Arrays.copyOf(record, record.length - 4));
+            }
+        }
+        if (replacements != null) {
+            apply(gitletDir, replacements);
+        }
+        journal.delete();
+    }
+
+    private static Map<File, byte[]> decode(File gitletDir, byte[] data) {
+        BinaryReader in = new BinaryReader(data, TAG, VERSION);
+        Map<File, byte[]> res = new LinkedHashMap<>();
+        int n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            File file = join(gitletDir, in.readString());
+            byte[] content = new byte[in.readInt()];
+            in.readBytes(content, 0, content.length);
+            res.put(file, content);
+        }
+        return res;
+    }
+
+    /** Replaces each file with its new content and makes them durable.  The
+     *  temporary files are made in GITLETDIR, where no command lists files,
+     *  so one left by a crash is never mistaken for e.g. a branch. */
+    private static void apply(File gitletDir, Map<File, byte[]> replacements) {
+        List<File> temps = new ArrayList<>();
+        try {
+            for (byte[] content : replacements.values()) {
+                File temp = File.createTempFile("replace-", ".tmp", gitletDir);
+                writeContents(temp, (Object) content);
+                temps.add(temp);
+            }
+            forceFiles(temps);
+            int i = 0;
+            for (File file : replacements.keySet()) {
+                Files.move(temps.get(i).toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+                i += 1;
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write %s.", gitletDir);
+        }
+        forceDirs(replacements.keySet());
+    }
+
+    /** Makes the content of FILES and their names durable. */
+    static void forceAll(Collection<File> files) {
+        forceFiles(files);
+        forceDirs(files);
+    }
+
+    private static void forceFiles(Collection<File> files) {
+        for (File file : files) {
+            force(file, StandardOpenOption.WRITE);
+        }
+    }
+
+    /** Syncs each directory holding one of FILES once. */
+    private static void forceDirs(Collection<File> files) {
+        Set<File> dirs = new LinkedHashSet<>();
+        for (File file : files) {
+            dirs.add(file.getParentFile());
+        }
+        for (File dir : dirs) {
+            force(dir, StandardOpenOption.READ);
+        }
+    }
+
+    private static void force(File file, StandardOpenOption mode) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), mode)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            // Some systems cannot open or sync a directory; there is nothing
+            // more to be done about it.
+            if (file.isFile()) {
+                throw error("Cannot sync %s.", file.getName());
+            }
+        }
+    }
+}
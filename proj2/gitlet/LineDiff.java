@@ -0,0 +1,440 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Finds the lines that differ between two versions of a file, with
+ *  Myers' O((N + M) D) algorithm in its linear-space form: the middle snake
+ *  of the edit graph is found from both ends at once, and the two halves on
+ *  either side of it are compared in turn.  Lines are interned to ints
+ *  first, so comparing two lines is comparing two ints, and the common
+ *  prefix and suffix of every range are skipped before any searching.
+ *  Lines that appear in only one of the files cannot match anything and
+ *  are left out of the search altogether, which for typical edits (new
+ *  lines that are unique) leaves little or nothing to search.
+ *
+ *  Files that differ almost everywhere would take quadratic time, so, as in
+ *  GNU diff, a search that gets too expensive settles for the furthest
+ *  point reached instead of the middle snake.  The result is then still a
+ *  correct diff, if not always the shortest one.
+ *
+ *  @author Colin Wang
+ */
+class LineDiff {
+    /** The fewest diagonals searched before a search may give up. */
+    private static final int MIN_TOO_EXPENSIVE = 1024;
+
+    /** Lines [aStart, aEnd) of A replaced by lines [bStart, bEnd) of B. */
+    static class Hunk {
+        final int aStart;
+        final int aEnd;
+        final int bStart;
+        final int bEnd;
+
+        Hunk(int aStart, int aEnd, int bStart, int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+    }
+
+    /** The lines of a file, each with its line terminator (the last one
+     *  has none if the file does not end with one), kept as offsets into
+     *  the file's bytes so that splitting a large file makes no strings. */
+    static class Lines {
+        private final byte[] data;
+        /** Line i is data[starts[i], starts[i + 1]). */
+        private final int[] starts;
+
+        Lines(byte[] data) {
+            this.data = data;
+            int n = 0;
+            for (byte c : data) {
+                if (c == '\n') {
+                    n += 1;
+                }
+            }
+            boolean partial = data.length > 0 && data[data.length - 1] != '\n';
+            starts = new int[n + (partial ? 1 : 0) + 1];
+            int k = 1;
+            for (int i = 0; i < data.length; i += 1) {
+                if (data[i] == '\n') {
+                    starts[k] = i + 1;
+                    k += 1;
+                }
+            }
+            starts[starts.length - 1] = data.length;
+        }
+
+        int size() {
+            return starts.length - 1;
+        }
+
+        /** Writes lines [FROM, TO) to OUT. */
+        void writeTo(ByteArrayOutputStream out, int from, int to) {
+            out.write(data, starts[from], starts[to] - starts[from]);
+        }
+
+        /** Returns true if line I ends with a line terminator. */
+        boolean isTerminated(int i) {
+            return starts[i + 1] > starts[i] && data[starts[i + 1] - 1] == '\n';
+        }
+    }
+
+    /** Reads a stream one line at a time into a buffer it reuses, so that
+     *  a file of any size can be gone through in constant memory. */
+    static class LineReader implements Closeable {
+        private final InputStream in;
+        private byte[] line = new byte[256];
+        private int length;
+
+        LineReader(InputStream in) {
+            this.in = new BufferedInputStream(in, 1 << 16);
+        }
+
+        /** Reads the next line, with its terminator if it has one, and
+         *  returns false at the end of the stream. */
+        boolean next() throws IOException {
+            length = 0;
+            for (int c = in.read(); c >= 0; c = in.read()) {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length] = (byte) c;
+                length += 1;
+                if (c == '\n') {
+                    break;
+                }
+            }
+            return length > 0;
+        }
+
+        /** The bytes of the current line are line()[0, length()). */
+        byte[] line() {
+            return line;
+        }
+
+        int length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Numbers distinct lines, so that equal lines get equal numbers.  An
+     *  open-addressing table maps each line to its number; only the first
+     *  copy of each distinct line is kept, in one shared byte array. */
+    static class Interner {
+        private byte[] arena = new byte[1 << 12];
+        private int arenaLength;
+        /** Per number, where its line starts in the arena and its hash;
+         *  the line ends where the next one starts. */
+        private int[] starts = new int[17];
+        private int[] hashes = new int[16];
+        private int count;
+        /** Number + 1 of the line in each slot, or 0 for an empty slot. */
+        private int[] slots = new int[32];
+
+        int[] intern(Lines lines) {
+            int[] res = new int[lines.size()];
+            for (int i = 0; i < res.length; i += 1) {
+                res[i] = intern(lines.data, lines.starts[i], lines.starts[i + 1]);
+            }
+            return res;
+        }
+
+        /** Returns the number of the line DATA[FROM, TO). */
+        int intern(byte[] data, int from, int to) {
+            int h = 0;
+            for (int k = from; k < to; k += 1) {
+                h = 31 * h + data[k];
+            }
+            h ^= h >>> 16;
+            int mask = slots.length - 1;
+            for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) {
+                    return add(data, from, to, h, slot);
+                }
+                if (hashes[id] == h && Arrays.equals(arena, starts[id], starts[id + 1], data, from, to)) {
+                    return id;
+                }
+            }
+        }
+
+        private int add(byte[] data, int from, int to, int h, int slot) {
+            int id = count;
+            if (id + 1 == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+                hashes = Arrays.copyOf(hashes, starts.length - 1);
+            }
+            if (arenaLength + to - from > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + to - from));
+            }
+            System.arraycopy(data, from, arena, arenaLength, to - from);
+            arenaLength += to - from;
+            starts[id + 1] = arenaLength;
+            hashes[id] = h;
+            slots[slot] = id + 1;
+            count += 1;
+            if (count * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < count; id += 1) {
+                int slot = hashes[id] & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+    }
+
+    private final int[] a;
+    private final int[] b;
+    /** Which lines of A and B are changed, indexed by their position in
+     *  the whole files; A and B hold only the lines at AINDEX and BINDEX. */
+    private final boolean[] aChanged;
+    private final boolean[] bChanged;
+    private final int[] aIndex;
+    private final int[] bIndex;
+    /** The furthest x reached on each diagonal x - y, forwards and
+     *  backwards, at index diagonal + OFFSET. */
+    private final int[] fd;
+    private final int[] bd;
+    private final int offset;
+    private final int tooExpensive;
+
+    private LineDiff(int[] a, int[] b, boolean[] aChanged, boolean[] bChanged, int[] aIndex, int[] bIndex) {
+        this.a = a;
+        this.b = b;
+        this.aChanged = aChanged;
+        this.bChanged = bChanged;
+        this.aIndex = aIndex;
+        this.bIndex = bIndex;
+        this.offset = b.length + 1;
+        this.fd = new int[a.length + b.length + 3];
+        this.bd = new int[a.length + b.length + 3];
+        int limit = 1;
+        for (long diagonals = a.length + b.length + 3L; diagonals != 0; diagonals >>= 2) {
+            limit <<= 1;
+        }
+        this.tooExpensive = Math.max(MIN_TOO_EXPENSIVE, limit);
+    }
+
+    /** Returns the hunks that turn A into B, in order. */
+    static List<Hunk> diff(int[] a, int[] b) {
+        boolean[] aChanged = new boolean[a.length];
+        boolean[] bChanged = new boolean[b.length];
+        int[] aIndex = matchable(a, b, aChanged);
+        int[] bIndex = matchable(b, a, bChanged);
+        LineDiff diff = new LineDiff(select(a, aIndex), select(b, bIndex), aChanged, bChanged, aIndex, bIndex);
+        diff.compare(0, aIndex.length, 0, bIndex.length);
+
+        // The lines left unchanged on the two sides pair up in order.
+        List<Hunk> hunks = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !aChanged[i] && !bChanged[j]) {
+                i += 1;
+                j += 1;
+                continue;
+            }
+            int aStart = i;
+            int bStart = j;
+            while (i < a.length && aChanged[i]) {
+                i += 1;
+            }
+            while (j < b.length && bChanged[j]) {
+                j += 1;
+            }
+            hunks.add(new Hunk(aStart, i, bStart, j));
+        }
+        return hunks;
+    }
+
+    /** Returns the positions of the lines of A that also appear in B, and
+     *  marks the others in CHANGED. */
+    private static int[] matchable(int[] a, int[] b, boolean[] changed) {
+        int max = 0;
+        for (int line : b) {
+            max = Math.max(max, line + 1);
+        }
+        boolean[] inB = new boolean[max];
+        for (int line : b) {
+            inB[line] = true;
+        }
+        int[] res = new int[a.length];
+        int n = 0;
+        for (int i = 0; i < a.length; i += 1) {
+            if (a[i] < max && inB[a[i]]) {
+                res[n] = i;
+                n += 1;
+            } else {
+                changed[i] = true;
+            }
+        }
+        return Arrays.copyOf(res, n);
+    }
+
+    private static int[] select(int[] lines, int[] index) {
+        int[] res = new int[index.length];
+        for (int i = 0; i < index.length; i += 1) {
+            res[i] = lines[index[i]];
+        }
+        return res;
+    }
+
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            for (int i = aLo; i < aHi; i += 1) {
+                aChanged[aIndex[i]] = true;
+            }
+            for (int j = bLo; j < bHi; j += 1) {
+                bChanged[bIndex[j]] = true;
+            }
+            return;
+        }
+        int[] mid = middleSnake(aLo, aHi, bLo, bHi);
+        compare(aLo, mid[0], bLo, mid[1]);
+        compare(mid[0], aHi, mid[1], bHi);
+    }
+
+    /** Returns a point {x, y} on the shortest edit path from (ALO, BLO) to
+     *  (AHI, BHI) that splits it about in half.  The ranges are non-empty
+     *  and differ in their first and last lines. */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int dMin = aLo - bHi;
+        int dMax = aHi - bLo;
+        int fMid = aLo - bLo;
+        int bMid = aHi - bHi;
+        int fMin = fMid;
+        int fMax = fMid;
+        int bMin = bMid;
+        int bMax = bMid;
+        boolean odd = ((fMid - bMid) & 1) != 0;
+        fd[offset + fMid] = aLo;
+        bd[offset + bMid] = aHi;
+        for (int c = 1; ; c += 1) {
+            if (fMin > dMin) {
+                fMin -= 1;
+                fd[offset + fMin - 1] = -1;
+            } else {
+                fMin += 1;
+            }
+            if (fMax < dMax) {
+                fMax += 1;
+                fd[offset + fMax + 1] = -1;
+            } else {
+                fMax -= 1;
+            }
+            for (int d = fMax; d >= fMin; d -= 2) {
+                int lo = fd[offset + d - 1];
+                int hi = fd[offset + d + 1];
+                int x = lo < hi ? hi : lo + 1;
+                int y = x - d;
+                while (x < aHi && y < bHi && a[x] == b[y]) {
+                    x += 1;
+                    y += 1;
+                }
+                fd[offset + d] = x;
+                if (odd && bMin <= d && d <= bMax && bd[offset + d] <= x) {
+                    return new int[] {x, y};
+                }
+            }
+
+            if (bMin > dMin) {
+                bMin -= 1;
+                bd[offset + bMin - 1] = Integer.MAX_VALUE;
+            } else {
+                bMin += 1;
+            }
+            if (bMax < dMax) {
+                bMax += 1;
+                bd[offset + bMax + 1] = Integer.MAX_VALUE;
+            } else {
+                bMax -= 1;
+            }
+            for (int d = bMax; d >= bMin; d -= 2) {
+                int lo = bd[offset + d - 1];
+                int hi = bd[offset + d + 1];
+                int x = lo < hi ? lo : hi - 1;
+                int y = x - d;
+                while (x > aLo && y > bLo && a[x - 1] == b[y - 1]) {
+                    x -= 1;
+                    y -= 1;
+                }
+                bd[offset + d] = x;
+                if (!odd && fMin <= d && d <= fMax && x <= fd[offset + d]) {
+                    return new int[] {x, y};
+                }
+            }
+
+            if (c >= tooExpensive) {
+                return furthestPoint(aLo, aHi, bLo, bHi, fMin, fMax, bMin, bMax);
+            }
+        }
+    }
+
+    /** Returns whichever of the furthest points reached forwards and
+     *  backwards got further from its end. */
+    private int[] furthestPoint(int aLo, int aHi, int bLo, int bHi, int fMin, int fMax, int bMin, int bMax) {
+        int fBest = -1;
+        int fBestX = aLo;
+        for (int d = fMax; d >= fMin; d -= 2) {
+            int x = Math.min(fd[offset + d], aHi);
+            int y = x - d;
+            if (y > bHi) {
+                x = bHi + d;
+                y = bHi;
+            }
+            if (x + y > fBest) {
+                fBest = x + y;
+                fBestX = x;
+            }
+        }
+        int bBest = Integer.MAX_VALUE;
+        int bBestX = aHi;
+        for (int d = bMax; d >= bMin; d -= 2) {
+            int x = Math.max(aLo, bd[offset + d]);
+            int y = x - d;
+            if (y < bLo) {
+                x = bLo + d;
+                y = bLo;
+            }
+            if (x + y < bBest) {
+                bBest = x + y;
+                bBestX = x;
+            }
+        }
+        if ((aHi + bHi) - bBest < fBest - (aLo + bLo)) {
+            return new int[] {fBestX, fBest - fBestX};
+        }
+        return new int[] {bBestX, bBest - bBestX};
+    }
+}
@@ -0,0 +1,83 @@
+package gitlet;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/** The options of log and global-log:
+ *      -n <count>     show at most count commits
+ *      --since <date> show only commits made at or after date, given as
+ *                     yyyy-MM-dd or "yyyy-MM-dd HH:mm:ss" (local time)
+ *      --oneline      show each commit as its abbreviated id and message
+ *
+ *  @author Colin Wang
+ */
+class LogOptions {
+    private static final String[] DATE_FORMATS = {"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd HH:mm", "yyyy-MM-dd"};
+
+    /** The most commits to show. */
+    int limit = Integer.MAX_VALUE;
+    /** The earliest commit time to show, in milliseconds. */
+    long since = Long.MIN_VALUE;
+    boolean oneline;
+
+    /** Returns the options in ARGS[FROM..], or null if they are malformed. */
+    static LogOptions parse(String[] args, int from) {
+        LogOptions options = new LogOptions();
+        for (int i = from; i < args.length; i += 1) {
+            switch (args[i]) {
+                case "-n" -> {
+                    if (i + 1 == args.length) {
+                        return null;
+                    }
+                    i += 1;
+                    try {
+                        options.limit = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException excp) {
+                        return null;
+                    }
+                    if (options.limit < 0) {
+                        return null;
+                    }
+                }
+                case "--since" -> {
+                    if (i + 1 == args.length) {
+                        return null;
+                    }
+                    i += 1;
+                    Date date = parseDate(args[i]);
+                    if (date == null) {
+                        return null;
+                    }
+                    options.since = date.getTime();
+                }
+                case "--oneline" -> options.oneline = true;
+                default -> {
+                    return null;
+                }
+            }
+        }
+        return options;
+    }
+
+    private static Date parseDate(String text) {
+        for (String format : DATE_FORMATS) {
+            SimpleDateFormat df = new SimpleDateFormat(format);
+            df.setLenient(false);
+            ParsePosition pos = new ParsePosition(0);
+            Date date = df.parse(text, pos);
+            if (date != null && pos.getIndex() == text.length()) {
+                return date;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the text shown for COMMIT. */
+    String format(Commit commit) {
+        if (oneline) {
+            return commit.getID().substring(0, 7) + " " + commit.getMessage() + "\n";
+        }
+        return commit.getCommitAsString();
+    }
+}
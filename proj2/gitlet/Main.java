@@ -1,20 +1,65 @@
 package gitlet;
 
+import java.util.Arrays;
+import java.util.Set;
+
+import static gitlet.Utils.*;
 
 /** Driver class for Gitlet, a subset of the Git version-control system.
  *  @author Colin Wang
  */
 public class Main {
+    /** The commands that do not change the repository, which may run
+     *  while others do (see RepoLock). */
+    private static final Set<String> READ_ONLY = Set.of("log", "global-log", "find", "status", "diff");
 
     /** Usage: java gitlet.Main ARGS, where ARGS contains
      *  <COMMAND> <OPERAND1> <OPERAND2> ...
      */
     public static void main(String[] args) {
-        if (args == null || args.length == 0) {
-            System.out.println("Please enter a command.");
-            System.exit(0);
+        try {
+            if (args != null && args.length > 0 && args[0].equals("daemon")) {
+                daemon(args);
+            } else {
+                run(new Repository(), args);
+            }
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
         }
+    }
+
+    /** Usage: java gitlet.Main daemon [stop].  Serves commands for the
+     *  repository in the current directory until stopped (see Daemon). */
+    @SuppressWarnings("try")
+    private static void daemon(String[] args) {
         Repository repo = new Repository();
+        try (RepoLock lock = repo.lock(false)) {
+            repo.checkIfInitDirectoryExists();
+        }
+        if (args.length == 1) {
+            new Daemon(repo).serve();
+        } else if (args.length == 2 && args[1].equals("stop")) {
+            if (!Client.forward(args)) {
+                throw error("No daemon is running.");
+            }
+        } else {
+            repo.messageIncorrectOperands();
+        }
+    }
+
+    /** Runs the command ARGS on REPO.  Errors are thrown as
+     *  GitletExceptions whose message is what should be printed. */
+    @SuppressWarnings("try")
+    static void run(Repository repo, String[] args) {
+        if (args == null || args.length == 0) {
+            throw error("Please enter a command.");
+        }
+        try (RepoLock lock = repo.lock(READ_ONLY.contains(args[0]))) {
+            dispatch(repo, args);
+        }
+    }
+
+    private static void dispatch(Repository repo, String[] args) {
         String firstArg = args[0];
         switch (firstArg) {
             case "init" -> {
@@ -22,9 +67,11 @@ public class Main {
                 repo.init();
             }
             case "add" -> {
-                repo.checkCommandLength(args.length, 2);
+                if (args.length < 2) {
+                    repo.messageIncorrectOperands();
+                }
                 repo.checkIfInitDirectoryExists();
-                repo.add(args[1]);
+                repo.add(Arrays.copyOfRange(args, 1, args.length));
             }
             case "rm" -> {
                 repo.checkCommandLength(args.length, 2);
@@ -37,19 +84,30 @@ public class Main {
                 repo.commit(args[1]);
             }
             case "log" -> {
-                repo.checkCommandLength(args.length, 1);
+                LogOptions options = LogOptions.parse(args, 1);
+                if (options == null) {
+                    repo.messageIncorrectOperands();
+                }
                 repo.checkIfInitDirectoryExists();
-                repo.log();
+                repo.log(options);
             }
             case "global-log" -> {
-                repo.checkCommandLength(args.length, 1);
+                LogOptions options = LogOptions.parse(args, 1);
+                if (options == null) {
+                    repo.messageIncorrectOperands();
+                }
                 repo.checkIfInitDirectoryExists();
-                repo.globalLog();
+                repo.globalLog(options);
             }
             case "find" -> {
-                repo.checkCommandLength(args.length, 2);
-                repo.checkIfInitDirectoryExists();
-                repo.find(args[1]);
+                if (args.length == 3 && args[1].equals("--grep")) {
+                    repo.checkIfInitDirectoryExists();
+                    repo.findGrep(args[2]);
+                } else {
+                    repo.checkCommandLength(args.length, 2);
+                    repo.checkIfInitDirectoryExists();
+                    repo.find(args[1]);
+                }
             }
             case "status" -> {
                 repo.checkCommandLength(args.length, 1);
@@ -59,9 +117,9 @@ public class Main {
             case "checkout" -> {
                 int length = args.length;
                 if (length < 2 || length > 4) {
-                    System.out.println("Incorrect operands.");
-                    System.exit(0);
+                    throw error("Incorrect operands.");
                 }
+                repo.checkIfInitDirectoryExists();
                 if (length == 2) {                              // checkout branch
                     repo.checkoutBranch(args[1]);
                 } else if (length == 3) {                       // checkout -- filename
@@ -72,6 +130,17 @@ public class Main {
                     repo.checkoutFileFromCommitId(args[1], args[3]);
                 }
             }
+            case "diff" -> {
+                if (args.length > 3) {
+                    repo.messageIncorrectOperands();
+                }
+                repo.checkIfInitDirectoryExists();
+                if (args.length == 2 && args[1].equals("--staged")) {
+                    repo.diffStaged();
+                } else {
+                    repo.diff(Arrays.copyOfRange(args, 1, args.length));
+                }
+            }
             case "branch" -> {
                 repo.checkCommandLength(args.length, 2);
                 repo.checkIfInitDirectoryExists();
@@ -92,9 +161,41 @@ public class Main {
                 repo.checkIfInitDirectoryExists();
                 repo.merge(args[1]);
             }
+            case "gc" -> {
+                boolean delta = args.length == 2 && args[1].equals("--delta");
+                if (!delta) {
+                    repo.checkCommandLength(args.length, 1);
+                }
+                repo.checkIfInitDirectoryExists();
+                repo.gc(delta);
+            }
+            case "add-remote" -> {
+                repo.checkCommandLength(args.length, 3);
+                repo.checkIfInitDirectoryExists();
+                repo.addRemote(args[1], args[2]);
+            }
+            case "rm-remote" -> {
+                repo.checkCommandLength(args.length, 2);
+                repo.checkIfInitDirectoryExists();
+                repo.rmRemote(args[1]);
+            }
+            case "fetch" -> {
+                repo.checkCommandLength(args.length, 3);
+                repo.checkIfInitDirectoryExists();
+                repo.fetch(args[1], args[2]);
+            }
+            case "push" -> {
+                repo.checkCommandLength(args.length, 3);
+                repo.checkIfInitDirectoryExists();
+                repo.push(args[1], args[2]);
+            }
+            case "pull" -> {
+                repo.checkCommandLength(args.length, 3);
+                repo.checkIfInitDirectoryExists();
+                repo.pull(args[1], args[2]);
+            }
             default -> {
-                System.out.println("No command with that name exists.");
-                System.exit(0);
+                throw error("No command with that name exists.");
             }
         }
     }
@@ -0,0 +1,158 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/** Merges two versions of a file line by line against the version they
+ *  both came from, as diff3 does.
+ *
+ *  Both versions are diffed against the base (see LineDiff).  Hunks of the
+ *  two diffs whose base lines overlap or touch are grouped into a region.
+ *  A region changed on one side only takes that side's lines, and one both
+ *  sides changed the same way takes either; anything else is a conflict.
+ *  Lines the two sides share at the start and end of a conflict are moved
+ *  out of it, so the markers
+ *      <<<<<<< HEAD
+ *      lines of the current branch
+ *      =======
+ *      lines of the given branch
+ *      >>>>>>>
+ *  surround only the lines that really clash.  Base lines outside every
+ *  region are the same on all three versions and are copied.
+ *
+ *  @author Colin Wang
+ */
+class Merge3 {
+    private final LineDiff.Lines lines;
+    private final int[] base;
+    private final int[] ours;
+    private final int[] theirs;
+    private final LineDiff.Lines ourLines;
+    private final LineDiff.Lines theirLines;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private boolean conflicted;
+
+    private Merge3(byte[] baseText, byte[] oursText, byte[] theirsText) {
+        LineDiff.Interner interner = new LineDiff.Interner();
+        this.lines = new LineDiff.Lines(baseText);
+        this.ourLines = new LineDiff.Lines(oursText);
+        this.theirLines = new LineDiff.Lines(theirsText);
+        this.base = interner.intern(lines);
+        this.ours = interner.intern(ourLines);
+        this.theirs = interner.intern(theirLines);
+    }
+
+    /** Returns the merge of OURS and THEIRS, which both come from BASE. */
+    static Merge3 merge(byte[] base, byte[] ours, byte[] theirs) {
+        Merge3 merge = new Merge3(base, ours, theirs);
+        merge.run();
+        return merge;
+    }
+
+    /** Returns the merged text, with conflict markers if there were
+     *  conflicts. */
+    byte[] getText() {
+        return out.toByteArray();
+    }
+
+    boolean hasConflicts() {
+        return conflicted;
+    }
+
+    private void run() {
+        List<LineDiff.Hunk> ourHunks = LineDiff.diff(base, ours);
+        List<LineDiff.Hunk> theirHunks = LineDiff.diff(base, theirs);
+        int i = 0;
+        int j = 0;
+        int pos = 0;
+        while (i < ourHunks.size() || j < theirHunks.size()) {
+            boolean oursFirst = j == theirHunks.size()
+                    || (i < ourHunks.size() && ourHunks.get(i).aStart <= theirHunks.get(j).aStart);
+            LineDiff.Hunk first = oursFirst ? ourHunks.get(i) : theirHunks.get(j);
+            int lo = first.aStart;
+            int hi = first.aEnd;
+            int i0 = i;
+            int j0 = j;
+            // Take in every hunk of either side that reaches the region,
+            // which may grow the region and let more hunks in.
+            while (true) {
+                if (i < ourHunks.size() && ourHunks.get(i).aStart <= hi) {
+                    hi = Math.max(hi, ourHunks.get(i).aEnd);
+                    i += 1;
+                } else if (j < theirHunks.size() && theirHunks.get(j).aStart <= hi) {
+                    hi = Math.max(hi, theirHunks.get(j).aEnd);
+                    j += 1;
+                } else {
+                    break;
+                }
+            }
+            copy(lines, pos, lo);
+            int[] ourRange = sideRange(ourHunks, i0, i, lo, hi);
+            int[] theirRange = sideRange(theirHunks, j0, j, lo, hi);
+            if (i == i0) {
+                copy(theirLines, theirRange[0], theirRange[1]);
+            } else if (j == j0 || same(ourRange, theirRange)) {
+                copy(ourLines, ourRange[0], ourRange[1]);
+            } else {
+                conflict(ourRange, theirRange);
+            }
+            pos = hi;
+        }
+        copy(lines, pos, lines.size());
+    }
+
+    /** Returns the lines {start, end} of a side that stand for the base
+     *  lines [LO, HI), given that HUNKS[FROM, TO) are its hunks there. */
+    private static int[] sideRange(List<LineDiff.Hunk> hunks, int from, int to, int lo, int hi) {
+        if (from < to) {
+            LineDiff.Hunk first = hunks.get(from);
+            LineDiff.Hunk last = hunks.get(to - 1);
+            return new int[] {first.bStart - (first.aStart - lo), last.bEnd + (hi - last.aEnd)};
+        }
+        int shift = from == 0 ? 0 : hunks.get(from - 1).bEnd - hunks.get(from - 1).aEnd;
+        return new int[] {lo + shift, hi + shift};
+    }
+
+    private boolean same(int[] ourRange, int[] theirRange) {
+        return Arrays.equals(ours, ourRange[0], ourRange[1], theirs, theirRange[0], theirRange[1]);
+    }
+
+    private void conflict(int[] ourRange, int[] theirRange) {
+        int oStart = ourRange[0];
+        int oEnd = ourRange[1];
+        int tStart = theirRange[0];
+        int tEnd = theirRange[1];
+        while (oStart < oEnd && tStart < tEnd && ours[oStart] == theirs[tStart]) {
+            oStart += 1;
+            tStart += 1;
+        }
+        copy(ourLines, ourRange[0], oStart);
+        int oSuffix = oEnd;
+        while (oSuffix > oStart && tEnd > tStart && ours[oSuffix - 1] == theirs[tEnd - 1]) {
+            oSuffix -= 1;
+            tEnd -= 1;
+        }
+        conflicted = true;
+        out.writeBytes("<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8));
+        copyLines(ourLines, oStart, oSuffix);
+        out.writeBytes("=======\n".getBytes(StandardCharsets.UTF_8));
+        copyLines(theirLines, tStart, tEnd);
+        out.writeBytes(">>>>>>>\n".getBytes(StandardCharsets.UTF_8));
+        copy(ourLines, oSuffix, oEnd);
+    }
+
+    private void copy(LineDiff.Lines from, int start, int end) {
+        from.writeTo(out, start, end);
+    }
+
+    /** Copies lines into a conflict, ending the last one with a newline so
+     *  that the next marker starts a line of its own. */
+    private void copyLines(LineDiff.Lines from, int start, int end) {
+        copy(from, start, end);
+        if (start < end && !from.isTerminated(end - 1)) {
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import static gitlet.Utils.*;
+
+/** The commit messages of a repository, kept apart from the commits so
+ *  that find never has to read commit objects.
+ *
+ *  .gitlet/messages is "GMSG", version and one record per commit, appended
+ *  as commits are made:
+ *      [raw id (20 bytes)][length][message in UTF-8]
+ *  --grep scans this file, which holds nothing but ids and messages.
+ *
+ *  .gitlet/message-index maps every three-character substring (trigram) of
+ *  a message to the position of that message's record.  It is "GMIX",
+ *  version, the length of the messages file it covers, the number of
+ *  postings, a table of BUCKETS chain heads and then the postings
+ *      [trigram][message position][position of the next posting]
+ *  each linked into the chain of its trigram's bucket.  Postings are only
+ *  appended; a new commit writes its postings and then the chain heads.  A
+ *  substring of at least three characters can only be in the messages that
+ *  have all of its trigrams, so find walks one chain per trigram and checks
+ *  just the messages common to all of them.
+ *
+ *  @author Colin Wang
+ */
+class MessageIndex {
+    private static final int MESSAGES_MAGIC = 0x474d5347;
+    private static final int INDEX_MAGIC = 0x474d4958;
+    private static final int VERSION = 1;
+    private static final int MESSAGES_HEADER_LENGTH = 8;
+    private static final int BUCKETS = 1 << 12;
+    private static final int HEADS_START = 20;
+    private static final int POSTINGS_START = HEADS_START + BUCKETS * 4;
+    private static final int POSTING_LENGTH = 8 + 4 + 4;
+    private static final int RAW_ID_LENGTH = PackFile.RAW_ID_LENGTH;
+
+    private final File messagesFile;
+    private final File indexFile;
+
+    MessageIndex(File messagesFile, File indexFile) {
+        this.messagesFile = messagesFile;
+        this.indexFile = indexFile;
+    }
+
+    /** Returns true if the messages file exists. */
+    boolean exists() {
+        return messagesFile.isFile();
+    }
+
+    /** Records that commit ID has MESSAGE. */
+    void add(String id, String message) {
+        addAll(List.of(id), List.of(message));
+    }
+
+    /** Records that the commits IDS have the corresponding MESSAGES. */
+    void addAll(List<String> ids, List<String> messages) {
+        try (FileChannel channel = FileChannel.open(messagesFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = completeLength(channel);
+            ByteBuffer buf;
+            if (end == 0) {
+                buf = ByteBuffer.allocate(MESSAGES_HEADER_LENGTH);
+                buf.putInt(MESSAGES_MAGIC).putInt(VERSION).flip();
+                end += writeFully(channel, buf, end);
+            }
+            for (int i = 0; i < ids.size(); i += 1) {
+                byte[] bytes = messages.get(i).getBytes(StandardCharsets.UTF_8);
+                buf = ByteBuffer.allocate(RAW_ID_LENGTH + 4 + bytes.length);
+                buf.put(rawId(ids.get(i))).putInt(bytes.length).put(bytes).flip();
+                end += writeFully(channel, buf, end);
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write commit messages.");
+        }
+        updateIndex();
+    }
+
+    /** Returns the length of the complete records in the messages file,
+     *  cutting off a record left partial by a crash. */
+    private static long completeLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < MESSAGES_HEADER_LENGTH) {
+            channel.truncate(0);
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(4);
+        long pos = MESSAGES_HEADER_LENGTH;
+        while (pos + RAW_ID_LENGTH + 4 <= size) {
+            header.clear();
+            channel.read(header, pos + RAW_ID_LENGTH);
+            long next = pos + RAW_ID_LENGTH + 4 + header.getInt(0);
+            if (next > size) {
+                break;
+            }
+            pos = next;
+        }
+        if (pos != size) {
+            channel.truncate(pos);
+        }
+        return pos;
+    }
+
+    /** Adds postings for the messages that the index does not cover yet,
+     *  creating the index if it is missing. */
+    @SuppressWarnings("try")
+    private void updateIndex() {
+        if (!exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            // Commands that only read the repository may get here together;
+            // the lock makes one catch the index up while the others wait.
+            ByteBuffer messages = mapMessages();
+            ByteBuffer header = ByteBuffer.allocate(POSTINGS_START);
+            if (channel.size() >= POSTINGS_START) {
+                channel.read(header, 0);
+                checkHeader(header);
+            }
+            // An index that covers more than the messages file was built for
+            // messages that are gone, so it is started over.
+            boolean fresh = channel.size() < POSTINGS_START || header.getLong(8) > messages.limit();
+            if (fresh) {
+                header.clear();
+                header.putInt(INDEX_MAGIC).putInt(VERSION).putLong(MESSAGES_HEADER_LENGTH).putInt(0);
+                for (int i = 0; i < BUCKETS; i += 1) {
+                    header.putInt(-1);
+                }
+            }
+            long covered = header.getLong(8);
+            if (!fresh && covered == messages.limit()) {
+                return;
+            }
+            // Postings written by an update that did not finish were never
+            // linked into a chain.
+            int count = header.getInt(16);
+            long end = POSTINGS_START + (long) count * POSTING_LENGTH;
+            channel.truncate(end);
+            ByteBuffer postings = ByteBuffer.allocate(POSTING_LENGTH * 256);
+            for (int pos = (int) covered; pos < messages.limit(); pos = nextRecord(messages, pos)) {
+                for (long trigram : trigrams(readMessage(messages, pos))) {
+                    int bucket = bucketOf(trigram);
+                    if (!postings.hasRemaining()) {
+                        postings.flip();
+                        end += writeFully(channel, postings, end);
+                        postings.clear();
+                    }
+                    postings.putLong(trigram).putInt(pos).putInt(header.getInt(HEADS_START + bucket * 4));
+                    header.putInt(HEADS_START + bucket * 4, count);
+                    count += 1;
+                }
+            }
+            postings.flip();
+            writeFully(channel, postings, end);
+            channel.force(false);
+            header.putLong(8, messages.limit());
+            header.putInt(16, count);
+            header.clear();
+            writeFully(channel, header, 0);
+        } catch (IOException excp) {
+            throw error("Cannot write commit message index.");
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        int written = 0;
+        while (buf.hasRemaining()) {
+            written += channel.write(buf, pos + written);
+        }
+        return written;
+    }
+
+    private static void checkHeader(ByteBuffer header) {
+        if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != VERSION) {
+            throw error("Corrupt commit message index.");
+        }
+    }
+
+    private ByteBuffer mapMessages() {
+        if (!messagesFile.isFile()) {
+            return ByteBuffer.allocate(0);
+        }
+        try (FileChannel channel = FileChannel.open(messagesFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.limit() < MESSAGES_HEADER_LENGTH || buf.getInt(0) != MESSAGES_MAGIC
+                    || buf.getInt(4) != VERSION) {
+                throw error("Corrupt commit messages.");
+            }
+            return buf;
+        } catch (IOException excp) {
+            throw error("Cannot read commit messages.");
+        }
+    }
+
+    private static int nextRecord(ByteBuffer messages, int pos) {
+        return pos + RAW_ID_LENGTH + 4 + messages.getInt(pos + RAW_ID_LENGTH);
+    }
+
+    private static String readId(ByteBuffer messages, int pos) {
+        byte[] raw = new byte[RAW_ID_LENGTH];
+        messages.get(pos, raw);
+        return hexId(raw);
+    }
+
+    private static String readMessage(ByteBuffer messages, int pos) {
+        byte[] bytes = new byte[messages.getInt(pos + RAW_ID_LENGTH)];
+        messages.get(pos + RAW_ID_LENGTH + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the distinct trigrams of TEXT, each packed as three 16-bit
+     *  chars. */
+    private static Set<Long> trigrams(String text) {
+        Set<Long> res = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i += 1) {
+            res.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return res;
+    }
+
+    private static int bucketOf(long trigram) {
+        long h = trigram * 0x9e3779b97f4a7c15L;
+        return (int) (h >>> 52) & (BUCKETS - 1);
+    }
+
+    /** Returns the ids, in order, of the commits whose message contains
+     *  QUERY. */
+    List<String> find(String query) {
+        updateIndex();
+        ByteBuffer messages = mapMessages();
+        Set<Long> wanted = trigrams(query);
+        if (wanted.isEmpty()) {
+            return grep(messages, Pattern.compile(Pattern.quote(query)));
+        }
+        Set<Integer> candidates = null;
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(index);
+            for (long trigram : wanted) {
+                Set<Integer> found = new HashSet<>();
+                int posting = index.getInt(HEADS_START + bucketOf(trigram) * 4);
+                while (posting >= 0) {
+                    int at = POSTINGS_START + posting * POSTING_LENGTH;
+                    int message = index.getInt(at + 8);
+                    if (index.getLong(at) == trigram && (candidates == null || candidates.contains(message))) {
+                        found.add(message);
+                    }
+                    posting = index.getInt(at + 12);
+                }
+                candidates = found;
+                if (candidates.isEmpty()) {
+                    break;
+                }
+            }
+        } catch (IOException excp) {
+            throw error("Cannot read commit message index.");
+        }
+        TreeSet<String> res = new TreeSet<>();
+        for (int pos : candidates) {
+            if (readMessage(messages, pos).contains(query)) {
+                res.add(readId(messages, pos));
+            }
+        }
+        return new ArrayList<>(res);
+    }
+
+    /** Returns the ids, in order, of the commits whose message matches
+     *  PATTERN somewhere. */
+    List<String> grep(Pattern pattern) {
+        return grep(mapMessages(), pattern);
+    }
+
+    private static List<String> grep(ByteBuffer messages, Pattern pattern) {
+        TreeSet<String> res = new TreeSet<>();
+        for (int pos = MESSAGES_HEADER_LENGTH; pos < messages.limit(); pos = nextRecord(messages, pos)) {
+            if (pattern.matcher(readMessage(messages, pos)).find()) {
+                res.add(readId(messages, pos));
+            }
+        }
+        return new ArrayList<>(res);
+    }
+}
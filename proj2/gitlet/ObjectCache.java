@@ -0,0 +1,75 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A least-recently-used cache bounded by the total weight (an estimate of
+ *  the size in bytes) of its values rather than by their number.  Counts
+ *  hits and misses so that callers can see how well it works.
+ *
+ *  Only immutable values, such as objects named by their hash, should be
+ *  cached: nothing is ever invalidated.  All methods are synchronized.
+ *
+ *  @author Colin Wang
+ */
+public class ObjectCache<K, V> {
+    private final long maxWeight;
+    private final LinkedHashMap<K, Map.Entry<V, Long>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+
+    public ObjectCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /** Returns the value cached for KEY, or null if there is none. */
+    public synchronized V get(K key) {
+        Map.Entry<V, Long> entry = entries.get(key);
+        if (entry == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return entry.getKey();
+    }
+
+    /** Caches VALUE, whose weight is WEIGHT, for KEY, evicting the least
+     *  recently used values until the total weight fits.  A value heavier
+     *  than the whole cache is not kept. */
+    public synchronized void put(K key, V value, long weight) {
+        if (weight > maxWeight) {
+            return;
+        }
+        Map.Entry<V, Long> old = entries.put(key, Map.entry(value, weight));
+        this.weight += weight - (old == null ? 0 : old.getValue());
+        Iterator<Map.Entry<V, Long>> eldest = entries.values().iterator();
+        while (this.weight > maxWeight) {
+            this.weight -= eldest.next().getValue();
+            eldest.remove();
+        }
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Returns the total weight of the cached values. */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d bytes, %d hits, %d misses", entries.size(), weight, hits, misses);
+    }
+}
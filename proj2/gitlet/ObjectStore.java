@@ -0,0 +1,408 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/** Represents where gitlet keeps its commits, trees and blobs.  Blobs are
+ *  stored zlib-deflated (see Blob), commits and trees in their binary
+ *  forms (see BinaryWriter).
+ *
+ *  New objects are written loose, one file per object in the directory of
+ *  their type.  gc() moves every loose object into a single pack (see
+ *  PackFile), so a repository with many objects needs only a few files and
+ *  looking an object up is a binary search in a memory-mapped index.  gc
+ *  can also store successive versions of a file as deltas against each
+ *  other (see Delta).  Decoded commits and trees are kept in a bounded
+ *  LRU cache, since a command often reads the same ones several times.
+ *
+ *  @author Colin Wang
+ */
+class ObjectStore {
+    static final int COMMIT = 1;
+    static final int BLOB = 2;
+    static final int TREE = 3;
+    /** The largest blob (in bytes of content) that gc stores as a delta. */
+    static final int MAX_DELTA_SIZE = 32 << 20;
+    /** The most bytes of stored commits and trees whose decoded forms are
+     *  kept in the cache. */
+    private static final long DECODED_CACHE_SIZE = 16L << 20;
+
+    private final File packsDir;
+    private final File commitsDir;
+    private final File treesDir;
+    private final File blobsDir;
+    /** The packs of this repository, loaded on first use. */
+    private List<PackFile> packs;
+    /** Loose objects written but not yet synced to disk. */
+    private List<File> unsynced = new ArrayList<>();
+    /** Decoded commits and trees by id, shared by every reader. */
+    private final ObjectCache<String, Object> decoded = new ObjectCache<>(DECODED_CACHE_SIZE);
+
+    ObjectStore(File packsDir, File commitsDir, File treesDir, File blobsDir) {
+        this.packsDir = packsDir;
+        this.commitsDir = commitsDir;
+        this.treesDir = treesDir;
+        this.blobsDir = blobsDir;
+    }
+
+    private File looseDir(int type) {
+        return switch (type) {
+            case COMMIT -> commitsDir;
+            case TREE -> treesDir;
+            default -> blobsDir;
+        };
+    }
+
+    private synchronized List<PackFile> getPacks() {
+        if (packs == null) {
+            packs = new ArrayList<>();
+            List<String> names = plainFilenamesIn(packsDir);
+            if (names != null) {
+                for (String name : names) {
+                    if (name.endsWith(".idx")) {
+                        String base = name.substring(0, name.length() - ".idx".length());
+                        packs.add(new PackFile(join(packsDir, base + ".pack"), join(packsDir, name)));
+                    }
+                }
+            }
+        }
+        return packs;
+    }
+
+    /** Forgets the packs, so that packs written or deleted by another
+     *  process are seen.  Decoded objects stay cached: an id always names
+     *  the same content. */
+    synchronized void refresh() {
+        if (packs != null) {
+            for (PackFile pack : packs) {
+                pack.close();
+            }
+            packs = null;
+        }
+    }
+
+    /** Returns true if the object ID of TYPE is stored, loose or packed. */
+    boolean contains(int type, String id) {
+        return findPacked(type, id) != null || join(looseDir(type), id).isFile();
+    }
+
+    /** Returns the pack holding the object ID of TYPE and its position
+     *  there, or null if it is not packed. */
+    private Map.Entry<PackFile, Integer> findPacked(int type, String id) {
+        if (id.length() != UID_LENGTH) {
+            return null;
+        }
+        byte[] raw = rawId(id);
+        for (PackFile pack : getPacks()) {
+            int pos = pack.find(raw);
+            if (pos >= 0 && pack.getType(pos) == type) {
+                return Map.entry(pack, pos);
+            }
+        }
+        return null;
+    }
+
+    /** Returns the stored bytes of the commit or tree ID of TYPE, or null
+     *  if there is no such object. */
+    byte[] read(int type, String id) {
+        Map.Entry<PackFile, Integer> packed = findPacked(type, id);
+        if (packed != null) {
+            return packed.getKey().read(packed.getValue());
+        }
+        File file = join(looseDir(type), id);
+        if (id.length() == UID_LENGTH && file.isFile()) {
+            return readContents(file);
+        }
+        return null;
+    }
+
+    /** Returns the commit ID, or null if there is no such commit. */
+    Commit readCommit(String id) {
+        Commit commit = (Commit) decoded.get(id);
+        if (commit == null) {
+            byte[] data = read(COMMIT, id);
+            if (data == null) {
+                return null;
+            }
+            commit = Commit.decode(id, data);
+            decoded.put(id, commit, data.length);
+        }
+        return commit;
+    }
+
+    /** Returns the tree ID, or null if there is no such tree. */
+    Tree readTree(String id) {
+        Tree tree = (Tree) decoded.get(id);
+        if (tree == null) {
+            byte[] data = read(TREE, id);
+            if (data == null) {
+                return null;
+            }
+            tree = Tree.decode(data);
+            decoded.put(id, tree, data.length);
+        }
+        return tree;
+    }
+
+    /** Returns the cache of decoded commits and trees. */
+    ObjectCache<String, Object> getCache() {
+        return decoded;
+    }
+
+    /** Returns a stream over the content of the blob ID, or null if there
+     *  is no such blob. */
+    InputStream openBlob(String id) {
+        Map.Entry<PackFile, Integer> packed = findPacked(BLOB, id);
+        if (packed != null) {
+            return packed.getKey().openContent(packed.getValue());
+        }
+        try {
+            return new InflaterInputStream(new BufferedInputStream(new FileInputStream(join(blobsDir, id))));
+        } catch (FileNotFoundException excp) {
+            return null;
+        }
+    }
+
+    /** Returns the file of the loose object ID of TYPE, which may not exist. */
+    File looseFile(int type, String id) {
+        return join(looseDir(type), id);
+    }
+
+    /** Stores DATA as the loose object ID of TYPE.  The object is written
+     *  under a temporary name and renamed, so it is whole if it exists, but
+     *  it is not synced to disk (see takeUnsynced). */
+    void writeLoose(int type, String id, byte[] data) {
+        File file = join(looseDir(type), id);
+        File temp = join(looseDir(type), id + ".tmp");
+        writeContents(temp, (Object) data);
+        try {
+            Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw error("Cannot store object %s.", id);
+        }
+        synchronized (this) {
+            unsynced.add(file);
+        }
+    }
+
+    /** Returns the loose objects written since the last call, which a
+     *  Journal should sync before anything refers to them. */
+    synchronized List<File> takeUnsynced() {
+        List<File> res = unsynced;
+        unsynced = new ArrayList<>();
+        return res;
+    }
+
+    /** Returns the ids of the loose objects of TYPE, skipping temporary
+     *  files left by a crash. */
+    private List<String> looseIds(int type) {
+        List<String> res = new ArrayList<>();
+        for (String name : Objects.requireNonNull(plainFilenamesIn(looseDir(type)))) {
+            if (name.length() == UID_LENGTH) {
+                res.add(name);
+            }
+        }
+        return res;
+    }
+
+    /** Returns the ids of all objects of TYPE in lexicographic order. */
+    List<String> ids(int type) {
+        TreeSet<String> res = new TreeSet<>(looseIds(type));
+        for (PackFile pack : getPacks()) {
+            for (int pos = 0; pos < pack.size(); pos += 1) {
+                if (pack.getType(pos) == type) {
+                    res.add(pack.getId(pos));
+                }
+            }
+        }
+        return new ArrayList<>(res);
+    }
+
+    /** Repacks every loose and packed object into one new pack, then
+     *  removes the loose files and the old packs once the new pack has
+     *  been synced to disk.  Objects already stored as deltas stay deltas.
+     *
+     *  If CHAINS is not null, blobs are deltified anew: each chain lists the
+     *  versions of one file, newest first, and every version is stored as a
+     *  delta against the one before it in its chain when that is smaller
+     *  than storing it whole.  No delta chain gets longer than MAXDEPTH, and
+     *  blobs larger than MAX_DELTA_SIZE are always stored whole. */
+    void gc(List<List<String>> chains, int maxDepth) {
+        List<PackFile> oldPacks = getPacks();
+        List<File> looseFiles = new ArrayList<>();
+        PackWriter writer = new PackWriter(packsDir);
+        if (chains != null) {
+            for (List<String> chain : chains) {
+                packDeltaChain(writer, chain, maxDepth);
+            }
+        }
+        for (PackFile pack : oldPacks) {
+            for (int pos = 0; pos < pack.size(); pos += 1) {
+                if (chains != null && pack.isDelta(pos)) {
+                    // Its base may have become a delta itself.
+                    packWhole(writer, pack.getId(pos));
+                } else {
+                    writer.copy(pack, pos);
+                }
+            }
+        }
+        for (int type : new int[] {COMMIT, TREE, BLOB}) {
+            File dir = looseDir(type);
+            for (String id : looseIds(type)) {
+                File file = join(dir, id);
+                try {
+                    writer.add(id, type, file.length(), new FileInputStream(file));
+                } catch (FileNotFoundException excp) {
+                    writer.abort();
+                    throw error("Cannot read object %s.", id);
+                }
+                looseFiles.add(file);
+            }
+        }
+        PackFile packed = writer.finish();
+        if (packed != null) {
+            // Every object must be on disk in the new pack before any other
+            // copy of it is deleted.
+            Journal.forceAll(List.of(packed.getPack(), packed.getIdx()));
+        }
+        refresh();
+        for (PackFile pack : oldPacks) {
+            if (packed != null && pack.getPack().equals(packed.getPack())) {
+                continue;
+            }
+            pack.getIdx().delete();
+            pack.getPack().delete();
+        }
+        for (File file : looseFiles) {
+            file.delete();
+        }
+    }
+
+    private void packDeltaChain(PackWriter writer, List<String> chain, int maxDepth) {
+        String baseId = null;
+        byte[] base = null;
+        int baseDepth = 0;
+        for (String id : chain) {
+            if (writer.contains(id)) {
+                // Also reached through another file; its depth is unknown.
+                baseId = null;
+                continue;
+            }
+            byte[] content = readBlobUpTo(id, MAX_DELTA_SIZE);
+            int depth = 0;
+            if (content == null) {
+                packWhole(writer, id);
+            } else if (baseId != null && baseDepth < maxDepth
+                    && packDelta(writer, id, content, baseId, base)) {
+                depth = baseDepth + 1;
+            } else {
+                packWhole(writer, id);
+            }
+            baseId = content == null ? null : id;
+            base = content;
+            baseDepth = depth;
+        }
+    }
+
+    /** Adds the blob ID, whose content is CONTENT, as a delta against the
+     *  blob BASEID if that is smaller than the whole blob.  Returns true if
+     *  it did. */
+    private boolean packDelta(PackWriter writer, String id, byte[] content, String baseId, byte[] base) {
+        byte[] delta = deflate(Delta.create(base, content));
+        if (delta.length + PackFile.RAW_ID_LENGTH >= storedLength(id)) {
+            return false;
+        }
+        writer.addDelta(id, baseId, delta);
+        return true;
+    }
+
+    /** Adds the object ID of TYPE to WRITER, a pack of another
+     *  repository, as it is stored here.  A delta stays a delta only if
+     *  WRITER already has its base. */
+    void copyTo(PackWriter writer, int type, String id) {
+        Map.Entry<PackFile, Integer> packed = findPacked(type, id);
+        if (packed != null && packed.getKey().isDelta(packed.getValue())
+                && writer.contains(packed.getKey().getBase(packed.getValue()))) {
+            writer.copy(packed.getKey(), packed.getValue());
+        } else {
+            packWhole(writer, type, id);
+        }
+    }
+
+    /** Adds the blob ID whole, copying its stored bytes unless it is
+     *  stored as a delta. */
+    private void packWhole(PackWriter writer, String id) {
+        packWhole(writer, BLOB, id);
+    }
+
+    /** Adds the object ID of TYPE whole, copying its stored bytes unless
+     *  it is stored as a delta. */
+    private void packWhole(PackWriter writer, int type, String id) {
+        Map.Entry<PackFile, Integer> packed = findPacked(type, id);
+        if (packed == null) {
+            File file = join(looseDir(type), id);
+            try {
+                writer.add(id, type, file.length(), new FileInputStream(file));
+            } catch (FileNotFoundException excp) {
+                writer.abort();
+                throw error("Cannot read object %s.", id);
+            }
+        } else if (!packed.getKey().isDelta(packed.getValue())) {
+            writer.copy(packed.getKey(), packed.getValue());
+        } else {
+            writer.add(id, BLOB, deflate(packed.getKey().readContent(packed.getValue())));
+        }
+    }
+
+    /** Returns the length of the blob ID as stored whole. */
+    private long storedLength(String id) {
+        Map.Entry<PackFile, Integer> packed = findPacked(BLOB, id);
+        if (packed == null) {
+            return join(blobsDir, id).length();
+        } else if (!packed.getKey().isDelta(packed.getValue())) {
+            return packed.getKey().getLength(packed.getValue());
+        }
+        return deflate(packed.getKey().readContent(packed.getValue())).length;
+    }
+
+    /** Returns the content of the blob ID, or null if it is longer than
+     *  LIMIT bytes. */
+    private byte[] readBlobUpTo(String id, int limit) {
+        try (InputStream in = openBlob(id)) {
+            if (in == null) {
+                throw error("Missing blob %s.", id);
+            }
+            byte[] content = in.readNBytes(limit + 1);
+            return content.length > limit ? null : content;
+        } catch (IOException excp) {
+            throw error("Cannot read object %s.", id);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(data);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return out.toByteArray();
+    }
+}
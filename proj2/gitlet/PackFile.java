@@ -0,0 +1,318 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
+
+import static gitlet.Utils.*;
+
+/** A read-only view of a pack: a .pack file holding many objects back to
+ *  back, and the .idx file next to it holding their ids in sorted order.
+ *
+ *  .pack: "GPAK", version, count, then for each object
+ *         [type (1 byte)][length (8 bytes)][data].
+ *         If the DELTA bit of the type is set, data is the raw id of a
+ *         base blob in the same pack followed by a deflated Delta from the
+ *         base's content to this blob's content.
+ *  .idx:  "GIDX", version, count, a 256-entry fanout table (number of ids
+ *         whose first byte is <= i), count sorted 20-byte ids, count types
+ *         (1 byte each) and count pack offsets (8 bytes each).
+ *
+ *  The index is memory-mapped, so looking an id up is a binary search over
+ *  the mapping and never lists a directory.  The pack itself is read
+ *  through one channel, opened on first use and kept open until close(),
+ *  with positional reads that any number of threads may issue at once.  Contents rebuilt from
+ *  deltas are kept in a small LRU cache, since neighbouring versions of a
+ *  file tend to be deltas against the same bases.
+ *
+ *  @author Colin Wang
+ */
+class PackFile {
+    static final int PACK_MAGIC = 0x4750414b;
+    static final int IDX_MAGIC = 0x47494458;
+    static final int VERSION = 1;
+    static final int RAW_ID_LENGTH = UID_LENGTH / 2;
+    static final int PACK_HEADER_LENGTH = 12;
+    static final int ENTRY_HEADER_LENGTH = 9;
+    static final int DELTA = 0x80;
+    /** The most bytes of rebuilt contents kept in the base cache. */
+    private static final long BASE_CACHE_SIZE = 32L << 20;
+    private static final int FANOUT_START = 12;
+    private static final int IDS_START = FANOUT_START + 256 * 4;
+
+    private final File pack;
+    private final File idx;
+    private final MappedByteBuffer index;
+    /** The open pack, or null before the first read. */
+    private FileChannel channel;
+    private final int count;
+    /** Rebuilt contents by position. */
+    private final ObjectCache<Integer, byte[]> bases = new ObjectCache<>(BASE_CACHE_SIZE);
+
+    PackFile(File pack, File idx) {
+        this.pack = pack;
+        this.idx = idx;
+        try (FileChannel channel = FileChannel.open(idx.toPath(), StandardOpenOption.READ)) {
+            this.index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException excp) {
+            throw error("Cannot read pack index %s.", idx.getName());
+        }
+        if (index.getInt(0) != IDX_MAGIC || index.getInt(4) != VERSION) {
+            throw error("Corrupt pack index %s.", idx.getName());
+        }
+        this.count = index.getInt(8);
+    }
+
+    private synchronized FileChannel channel() {
+        if (channel == null) {
+            try {
+                channel = FileChannel.open(pack.toPath(), StandardOpenOption.READ);
+            } catch (IOException excp) {
+                throw error("Cannot read pack %s.", pack.getName());
+            }
+        }
+        return channel;
+    }
+
+    /** Closes the pack.  Streams from open must not be read after this. */
+    synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException excp) {
+            // Nothing was written, so nothing is lost.
+        }
+        channel = null;
+    }
+
+    File getPack() {
+        return pack;
+    }
+
+    File getIdx() {
+        return idx;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Returns the position of RAWID in this pack, or -1 if it is not here. */
+    int find(byte[] rawId) {
+        int first = rawId[0] & 0xff;
+        int lo = first == 0 ? 0 : index.getInt(FANOUT_START + (first - 1) * 4);
+        int hi = index.getInt(FANOUT_START + first * 4) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareId(mid, rawId);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareId(int pos, byte[] rawId) {
+        int base = IDS_START + pos * RAW_ID_LENGTH;
+        for (int i = 0; i < RAW_ID_LENGTH; i += 1) {
+            int cmp = Integer.compare(index.get(base + i) & 0xff, rawId[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    String getId(int pos) {
+        byte[] raw = new byte[RAW_ID_LENGTH];
+        index.get(IDS_START + pos * RAW_ID_LENGTH, raw);
+        return hexId(raw);
+    }
+
+    int getType(int pos) {
+        return index.get(IDS_START + count * RAW_ID_LENGTH + pos);
+    }
+
+    long getOffset(int pos) {
+        return index.getLong(IDS_START + count * (RAW_ID_LENGTH + 1) + pos * 8);
+    }
+
+    /** Returns the length of the stored bytes of the object at POS. */
+    long getLength(int pos) {
+        return readEntryHeader(pos).getLong(1);
+    }
+
+    /** Returns true if the object at POS is stored as a delta. */
+    boolean isDelta(int pos) {
+        return (readEntryHeader(pos).get(0) & DELTA) != 0;
+    }
+
+    /** Returns the id of the object the delta at POS is against. */
+    String getBase(int pos) {
+        try (InputStream in = open(pos)) {
+            return hexId(in.readNBytes(RAW_ID_LENGTH));
+        } catch (IOException excp) {
+            throw error("Cannot read object %s from %s.", getId(pos), pack.getName());
+        }
+    }
+
+    private ByteBuffer readEntryHeader(int pos) {
+        ByteBuffer buf = ByteBuffer.allocate(ENTRY_HEADER_LENGTH);
+        readFully(pos, buf, getOffset(pos));
+        return buf;
+    }
+
+    /** Fills BUF from the pack starting at POSITION, which is within the
+     *  object at POS. */
+    private void readFully(int pos, ByteBuffer buf, long position) {
+        try {
+            while (buf.hasRemaining()) {
+                if (channel().read(buf, position + buf.position()) < 0) {
+                    throw new EOFException("truncated pack");
+                }
+            }
+        } catch (IOException excp) {
+            throw error("Cannot read object %s from %s.", getId(pos), pack.getName());
+        }
+    }
+
+    /** Returns a stream over the content of the blob at POS, inflating it
+     *  or rebuilding it from its delta. */
+    InputStream openContent(int pos) {
+        if (isDelta(pos)) {
+            return new ByteArrayInputStream(readContent(pos));
+        }
+        return new InflaterInputStream(open(pos));
+    }
+
+    /** Returns the content of the blob at POS.  Synchronized because of
+     *  the base cache. */
+    synchronized byte[] readContent(int pos) {
+        byte[] content = bases.get(pos);
+        if (content != null) {
+            return content;
+        }
+        byte[] data = read(pos);
+        if (isDelta(pos)) {
+            int basePos = find(Arrays.copyOf(data, RAW_ID_LENGTH));
+            if (basePos < 0) {
+                throw error("Missing delta base of %s in %s.", getId(pos), pack.getName());
+            }
+            byte[] delta = inflate(data, RAW_ID_LENGTH);
+            content = Delta.apply(readContent(basePos), delta);
+        } else {
+            content = inflate(data, 0);
+        }
+        bases.put(pos, content, content.length);
+        return content;
+    }
+
+    private byte[] inflate(byte[] data, int from) {
+        try (InputStream in = new InflaterInputStream(
+                new ByteArrayInputStream(data, from, data.length - from))) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw error("Corrupt object in %s.", pack.getName());
+        }
+    }
+
+    /** Returns a stream over the stored bytes of the object at POS, read
+     *  straight from the pack.  For a delta these are the base id and the
+     *  deflated delta. */
+    InputStream open(int pos) {
+        long start = getOffset(pos) + ENTRY_HEADER_LENGTH;
+        return new BufferedInputStream(new SliceInputStream(channel(), start, getLength(pos)));
+    }
+
+    /** Reads LENGTH bytes of a channel starting at a given position.
+     *  Closing it leaves the channel open. */
+    private static class SliceInputStream extends InputStream {
+        /** The open pack, or null before the first read. */
+    private FileChannel channel;
+        private long position;
+        private long remaining;
+
+        SliceInputStream(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            this.position = start;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (n < 0) {
+                throw new EOFException("truncated pack");
+            }
+            position += n;
+            remaining -= n;
+            return n;
+        }
+    }
+
+    /** Returns the stored bytes of the object at POS. */
+    byte[] read(int pos) {
+        byte[] data;
+        try {
+            data = new byte[Math.toIntExact(getLength(pos))];
+        } catch (ArithmeticException excp) {
+            throw error("Cannot read object %s from %s.", getId(pos), pack.getName());
+        }
+        readFully(pos, ByteBuffer.wrap(data), getOffset(pos) + ENTRY_HEADER_LENGTH);
+        return data;
+    }
+
+    /** Writes the index of the objects described by the parallel arrays
+     *  RAWIDS, TYPES and OFFSETS to IDX.  RAWIDS must be sorted. */
+    static void writeIndex(File idx, byte[][] rawIds, byte[] types, long[] offsets) {
+        int n = rawIds.length;
+        ByteBuffer buf = ByteBuffer.allocate(IDS_START + n * (RAW_ID_LENGTH + 1 + 8));
+        buf.putInt(IDX_MAGIC).putInt(VERSION).putInt(n);
+        int[] fanout = new int[256];
+        for (byte[] rawId : rawIds) {
+            fanout[rawId[0] & 0xff] += 1;
+        }
+        int total = 0;
+        for (int i = 0; i < 256; i += 1) {
+            total += fanout[i];
+            buf.putInt(total);
+        }
+        for (byte[] rawId : rawIds) {
+            buf.put(rawId);
+        }
+        buf.put(types);
+        for (long offset : offsets) {
+            buf.putLong(offset);
+        }
+        writeContents(idx, (Object) buf.array());
+    }
+
+    /** Compares raw ids A and B as unsigned bytes. */
+    static int compareRawIds(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+}
@@ -0,0 +1,180 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static gitlet.Utils.*;
+
+/** Appends objects to a new pack and writes its sorted index once all of
+ *  them are in.  The pack only becomes visible (under its final name) in
+ *  finish(), after both files are complete.
+ *
+ *  @author Colin Wang
+ */
+class PackWriter {
+    private final File dir;
+    private final File tempPack;
+    private final DataOutputStream out;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Set<String> ids = new HashSet<>();
+    private long offset;
+
+    private static class Entry {
+        final byte[] rawId;
+        final byte type;
+        final long offset;
+
+        Entry(byte[] rawId, byte type, long offset) {
+            this.rawId = rawId;
+            this.type = type;
+            this.offset = offset;
+        }
+    }
+
+    PackWriter(File dir) {
+        this.dir = dir;
+        try {
+            this.tempPack = File.createTempFile("tmp-", ".pack", dir);
+            this.out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPack.toPath())));
+            out.writeInt(PackFile.PACK_MAGIC);
+            out.writeInt(PackFile.VERSION);
+            out.writeInt(0);
+        } catch (IOException excp) {
+            throw error("Cannot create pack in %s.", dir.getPath());
+        }
+        this.offset = PackFile.PACK_HEADER_LENGTH;
+    }
+
+    /** Returns true if an object with ID was already added. */
+    boolean contains(String id) {
+        return ids.contains(id);
+    }
+
+    /** Appends the object ID of TYPE, whose stored bytes are DATA.  Objects
+     *  that are already in this pack are skipped. */
+    void add(String id, int type, byte[] data) {
+        add(id, type, data.length, new ByteArrayInputStream(data));
+    }
+
+    /** Appends the object ID of TYPE, whose LENGTH stored bytes are read
+     *  from IN.  Closes IN. */
+    void add(String id, int type, long length, InputStream in) {
+        write(id, type, type, length, in);
+    }
+
+    /** Appends the blob ID as DELTA, a deflated Delta against the blob
+     *  BASEID, which must also be added to this pack. */
+    void addDelta(String id, String baseId, byte[] delta) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.writeBytes(rawId(baseId));
+        data.writeBytes(delta);
+        write(id, ObjectStore.BLOB, ObjectStore.BLOB | PackFile.DELTA, data.size(),
+                new ByteArrayInputStream(data.toByteArray()));
+    }
+
+    /** Appends the object at POS of PACK as it is stored there, delta or
+     *  not. */
+    void copy(PackFile pack, int pos) {
+        int type = pack.getType(pos);
+        int stored = pack.isDelta(pos) ? type | PackFile.DELTA : type;
+        write(pack.getId(pos), type, stored, pack.getLength(pos), pack.open(pos));
+    }
+
+    /** Appends an entry of type STORED (the type with its flags) for the
+     *  object ID of TYPE.  Closes IN. */
+    private void write(String id, int type, int stored, long length, InputStream in) {
+        try (in) {
+            if (!ids.add(id)) {
+                return;
+            }
+            out.writeByte(stored);
+            out.writeLong(length);
+            if (in.transferTo(out) != length) {
+                throw error("Object %s changed while it was packed.", id);
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write object %s to pack.", id);
+        }
+        entries.add(new Entry(rawId(id), (byte) type, offset));
+        offset += PackFile.ENTRY_HEADER_LENGTH + length;
+    }
+
+    /** Writes the index and moves both files to their final names.  Returns
+     *  the finished pack, or null if no object was added. */
+    PackFile finish() {
+        try {
+            out.close();
+        } catch (IOException excp) {
+            throw error("Cannot write pack.");
+        }
+        if (entries.isEmpty()) {
+            tempPack.delete();
+            return null;
+        }
+        fixCount();
+        entries.sort(Comparator.comparing(e -> e.rawId, PackFile::compareRawIds));
+        int n = entries.size();
+        byte[][] rawIds = new byte[n][];
+        byte[] types = new byte[n];
+        long[] offsets = new long[n];
+        MessageDigest md = sha1Digest();
+        for (int i = 0; i < n; i += 1) {
+            Entry e = entries.get(i);
+            rawIds[i] = e.rawId;
+            types[i] = e.type;
+            offsets[i] = e.offset;
+            md.update(e.rawId);
+        }
+        String name = "pack-" + hexId(md.digest());
+        File pack = join(dir, name + ".pack");
+        File idx = join(dir, name + ".idx");
+        File tempIdx = join(dir, name + ".idx.tmp");
+        PackFile.writeIndex(tempIdx, rawIds, types, offsets);
+        if (!tempPack.renameTo(pack) || !tempIdx.renameTo(idx)) {
+            throw error("Cannot install pack %s.", name);
+        }
+        return new PackFile(pack, idx);
+    }
+
+    /** Cancels this pack, deleting what was written so far. */
+    void abort() {
+        try {
+            out.close();
+        } catch (IOException excp) {
+            // The temporary file is removed below anyway.
+        }
+        tempPack.delete();
+    }
+
+    private void fixCount() {
+        try (RandomAccessFile raf = new RandomAccessFile(tempPack, "rw")) {
+            raf.seek(8);
+            raf.writeInt(entries.size());
+        } catch (IOException excp) {
+            throw error("Cannot write pack.");
+        }
+    }
+
+    private static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+}
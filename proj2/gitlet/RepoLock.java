@@ -0,0 +1,98 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+
+import static gitlet.Utils.*;
+
+/** A lock on a whole repository, held by one command while it runs, so
+ *  that two gitlet processes never change it at the same time.
+ *
+ *  It is an OS file lock (FileChannel.lock) on .gitlet/lock, which the OS
+ *  releases if the process dies.  Commands that only read the repository
+ *  (log, status, find, ...) take it shared and run side by side; commands
+ *  that change it take it exclusive.  A command waits at most
+ *  core.lockTimeout milliseconds (see Config) for the lock and then gives
+ *  up instead of queueing forever behind a stuck process.
+ *
+ *  A read-only command does not write the stat cache, and does not recover
+ *  a transaction that a crash interrupted: it takes the lock exclusive when
+ *  there is one (see Repository.lock).  The files it may still write are
+ *  safe to share: the commit index is replaced whole by renaming, and the
+ *  message index takes its own lock while it catches up.
+ *
+ *  @author Colin Wang
+ */
+class RepoLock implements AutoCloseable {
+    /** The longest pause between two attempts to take the lock. */
+    private static final long MAX_BACKOFF_MILLIS = 50;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final Runnable beforeRelease;
+
+    private RepoLock(FileChannel channel, FileLock lock, Runnable beforeRelease) {
+        this.channel = channel;
+        this.lock = lock;
+        this.beforeRelease = beforeRelease;
+    }
+
+    /** Takes the lock FILE, SHARED or exclusive, waiting at most TIMEOUT
+     *  milliseconds.  BEFORERELEASE runs when the lock is closed, while it
+     *  is still held. */
+    static RepoLock acquire(File file, boolean shared, long timeout, Runnable beforeRelease) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long deadline = System.nanoTime() + timeout * 1_000_000;
+            long backoff = 1;
+            while (true) {
+                FileLock lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+                if (lock != null) {
+                    return new RepoLock(channel, lock, beforeRelease);
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        } catch (IOException excp) {
+            closeQuietly(channel);
+            throw error("Cannot lock the repository.");
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(channel);
+        throw error("Another gitlet process is using this repository.");
+    }
+
+    @Override
+    public void close() {
+        try {
+            beforeRelease.run();
+        } finally {
+            try {
+                lock.release();
+            } catch (IOException excp) {
+                // Closing the channel releases it as well.
+            }
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException excp) {
+            // Nothing was written through it.
+        }
+    }
+}
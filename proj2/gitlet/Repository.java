@@ -1,9 +1,19 @@
 package gitlet;
 
 import java.io.*;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.InflaterInputStream;
 
 import static gitlet.Utils.*;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
@@ -23,14 +33,24 @@ public class Repository {
       .gitlet
       -- staging
       -- [stage]
+      -- [index]
       -- blobs
       -- commits
+      -- trees
+      -- packs -> [pack-<id>.pack][pack-<id>.idx]
       -- ref
         -- heads -> [master][branch name]
         -- remotes
           -- [remote git repo name] -> [branch name]
+      -- [commit-graph]
+      -- [commit-index]
+      -- [messages]
+      -- [message-index]
       -- [HEAD]
       -- [config]
+      -- [lock] (see RepoLock)
+      -- [journal] (only while a transaction commits, see Journal)
+      -- [daemon.sock] (only while a daemon runs, see Daemon)
      */
     /**
      * The current working directory.
@@ -39,13 +59,40 @@ public class Repository {
     private File GITLET_DIR;
     private File STAGING_DIR;
     private File STAGE;
+    private File INDEX;
     private File BLOBS_DIR;
     private File COMMITS_DIR;
+    private File TREES_DIR;
+    private File PACKS_DIR;
     private File REFS_DIR;
     private File HEADS_DIR;
     private File REMOTES_DIR;
     private File HEAD;
     private File CONFIG;
+    private File COMMIT_GRAPH;
+    private File COMMIT_INDEX;
+    private File MESSAGES;
+    private File MESSAGE_INDEX;
+    private ObjectStore objects;
+    /** The commit graph, loaded on first use. */
+    private CommitGraph graph;
+    /** The sorted commit ids, loaded on first use. */
+    private CommitIndex commitIndex;
+    /** The commit messages, loaded on first use. */
+    private MessageIndex messageIndex;
+    /** The flattened files of trees (tree id -> (filename, blobId)). */
+    private final ObjectCache<String, Map<String, String>> treeFiles = new ObjectCache<>(16L << 20);
+    /** The stat cache of the working files, loaded on first use. */
+    private Index index;
+    /** The state on disk of what this repository has loaded (see
+     *  fingerprint), as of the end of the last command. */
+    private String loadedState;
+    /** Whether the repository serves many commands and so must check for
+     *  changes by others (see lock). */
+    private boolean trackLoaded;
+    /** Whether the command running holds the repository lock shared, and
+     *  so must not write the repository (see lock). */
+    private boolean sharedLock;
 
     public Repository() {
         this.CWD = new File(System.getProperty("user.dir"));
@@ -61,32 +108,44 @@ public class Repository {
         this.GITLET_DIR = join(CWD, ".gitlet");
         this.STAGING_DIR = join(GITLET_DIR, "staging");
         this.STAGE = join(GITLET_DIR, "stage");
+        this.INDEX = join(GITLET_DIR, "index");
         this.BLOBS_DIR = join(GITLET_DIR, "blobs");
         this.COMMITS_DIR = join(GITLET_DIR, "commits");
+        this.TREES_DIR = join(GITLET_DIR, "trees");
+        this.PACKS_DIR = join(GITLET_DIR, "packs");
         this.REFS_DIR = join(GITLET_DIR, "refs");
         this.HEADS_DIR = join(REFS_DIR, "heads");
         this.REMOTES_DIR = join(REFS_DIR, "remotes");
         this.HEAD = join(GITLET_DIR, "HEAD");
         this.CONFIG = join(GITLET_DIR, "config");
+        this.COMMIT_GRAPH = join(GITLET_DIR, "commit-graph");
+        this.COMMIT_INDEX = join(GITLET_DIR, "commit-index");
+        this.MESSAGES = join(GITLET_DIR, "messages");
+        this.MESSAGE_INDEX = join(GITLET_DIR, "message-index");
+        this.objects = new ObjectStore(PACKS_DIR, COMMITS_DIR, TREES_DIR, BLOBS_DIR);
     }
 
     public void init() {
         if (GITLET_DIR.exists() && GITLET_DIR.isDirectory()) {
-            System.out.println("A Gitlet version-control system already exists in the current directory");
-            System.exit(0);
+            throw error("A Gitlet version-control system already exists in the current directory");
         }
 
         GITLET_DIR.mkdir();
         STAGING_DIR.mkdir();
-        writeObject(STAGE, new Stage());
+        writeStage(new Stage());
         BLOBS_DIR.mkdir();
         COMMITS_DIR.mkdir();
+        TREES_DIR.mkdir();
+        PACKS_DIR.mkdir();
         REFS_DIR.mkdir();
         HEADS_DIR.mkdir();
         REMOTES_DIR.mkdir();
 
         Commit inititalCommit = new Commit();
         writeCommitToFile(inititalCommit);
+        getCommitGraph().add(inititalCommit);
+        getCommitIndex().addAll(List.of(inititalCommit.getID()));
+        getMessageIndex().add(inititalCommit.getID(), inititalCommit.getMessage());
         String id = inititalCommit.getID();
 
         String branchName = "master";
@@ -103,57 +162,73 @@ public class Repository {
      * do not stage it to be added, and remove it from the staging area if it is already there
      * (as can happen when a file is changed, added, and then changed back to its original version).
      * 3. The file will no longer be staged for removal (see gitlet rm), if it was at the time of the command.
+     * PATHS may name files or directories; a directory adds every file under it.  Files are hashed and
+     * stored in parallel, and the stage is written once at the end.
      */
-    public void add(String filename) {
-        File file = join(CWD, filename);
-        if (!file.exists()) {
-            System.out.println("File does not exist.");
-            System.exit(0);
+    public void add(String... paths) {
+        List<String> filenames = new ArrayList<>();
+        for (String path : paths) {
+            File file = CWD.toPath().resolve(path).normalize().toFile();
+            if (file.isDirectory()) {
+                filenames.addAll(listWorkingFiles(file));
+            } else if (file.isFile()) {
+                filenames.add(toFilename(file));
+            } else {
+                throw error("File does not exist.");
+            }
         }
 
-        Commit head = getHead();
+        Map<String, String> blobIds = getWorkingBlobIds(filenames);
+        Map<String, String> headFiles = getFiles(getHead());
         Stage stage = readStage();
-        String headId = head.getBlobs().getOrDefault(filename, "");
-        String stageId = stage.getAdded().getOrDefault(filename, "");
-        Blob blob = new Blob(filename, CWD);
-        String blobId = blob.getId();
-
-        if (blobId.equals(headId)) {
-            if (!blobId.equals(stageId)) {
-                join(STAGING_DIR, stageId).delete();
-                stage.getAdded().remove(stageId);
-                stage.getRemoved().remove(filename);
-                writeStage(stage);
-            }
-        } else if (!blobId.equals(stageId)) {
-            if (!stageId.equals("")) {
-                join(STAGING_DIR, stageId).delete();
-            }
-            writeObject(join(STAGING_DIR, blobId), blob);
-            stage.addFile(filename, blobId);
+        List<Blob> toStore = new ArrayList<>();
+        boolean changed = false;
+        for (String filename : filenames) {
+            String blobId = blobIds.get(filename);
+            String headId = headFiles.getOrDefault(filename, "");
+            String stageId = stage.getAdded().getOrDefault(filename, "");
+
+            if (blobId.equals(headId)) {
+                if (!blobId.equals(stageId)) {
+                    if (!stageId.equals("")) {
+                        join(STAGING_DIR, stageId).delete();
+                    }
+                    stage.getAdded().remove(filename);
+                    stage.getRemoved().remove(filename);
+                    changed = true;
+                }
+            } else if (!blobId.equals(stageId)) {
+                if (!stageId.equals("")) {
+                    join(STAGING_DIR, stageId).delete();
+                }
+                toStore.add(new Blob(filename, CWD, blobId));
+                stage.addFile(filename, blobId);
+                changed = true;
+            }
+        }
+        forEachInParallel(toStore, blob -> blob.writeTo(join(STAGING_DIR, blob.getId())));
+        if (changed) {
             writeStage(stage);
         }
+        writeIndex();
     }
 
     public void commit(String message) {
         if (message.equals("")) {
-            System.out.println("Please enter a commit message.");
-            System.exit(0);
+            throw error("Please enter a commit message.");
         }
         Commit head = getHead();
         commitWith(message, List.of(head));
     }
 
     public void rm(String filename) {
-        File file = join(CWD, filename);
         Commit head = getHead();
         Stage stage = readStage();
-        String headId = head.getBlobs().getOrDefault(filename, "");
+        String headId = getFiles(head).getOrDefault(filename, "");
         String stageId = stage.getAdded().getOrDefault(filename, "");
 
         if (headId.equals("") && stageId.equals("")) {
-            System.out.println("No reason to remove the file.");
-            System.exit(0);
+            throw error("No reason to remove the file.");
         }
 
         // Un_stage the file if it currently staged for addition
@@ -163,54 +238,92 @@ public class Repository {
             stage.getRemoved().add(filename);
         }
 
-        Blob blob = new Blob(filename, CWD);
-        String blobId = blob.getId();
-
-        if (blob.exists() && blobId.equals(headId)) {
-            restrictedDelete(file);
+        String blobId = getWorkingBlobId(filename);
+        if (blobId != null && blobId.equals(headId)) {
+            deleteWorkingFile(filename);
+            getIndex().remove(filename);
         }
 
         writeStage(stage);
+        writeIndex();
     }
 
-    public void log() {
-        StringBuffer sb = new StringBuffer();
-        Commit head = getHead();
-        while (head != null) {
-            sb.append(head.getCommitAsString());
-            head = getCommitFromId(head.getFirstParentId());
+    public void log(LogOptions options) {
+        PrintWriter out = newOutput();
+        Commit commit = getHead();
+        int shown = 0;
+        // Commit times only grow along the first-parent chain, so the walk
+        // stops at the first commit older than --since.
+        while (commit != null && shown < options.limit
+                && commit.getTimestamp().getTime() >= options.since) {
+            out.print(options.format(commit));
+            shown += 1;
+            commit = getCommitFromId(commit.getFirstParentId());
         }
-        System.out.print(sb);
+        out.flush();
     }
 
-    public void globalLog() {
-        StringBuffer sb = new StringBuffer();
-        List<String> commitIds = plainFilenamesIn(COMMITS_DIR);
-        assert commitIds != null;
-        for (String commitId : commitIds) {
-            Commit commit = getCommitFromId(commitId);
-            assert commit != null;
-            sb.append(commit.getCommitAsString());
+    public void globalLog(LogOptions options) {
+        PrintWriter out = newOutput();
+        CommitIndex ids = getCommitIndex();
+        CommitGraph commitGraph = getCommitGraph();
+        int shown = 0;
+        for (int i = 0; i < ids.size() && shown < options.limit; i += 1) {
+            String commitId = ids.getId(i);
+            // The graph knows the time of every commit, so commits before
+            // --since are skipped without being read.
+            int pos = commitGraph.find(commitId);
+            Commit commit = null;
+            if (pos < 0) {
+                commit = getCommitFromId(commitId);
+                assert commit != null;
+            }
+            long time = pos >= 0 ? commitGraph.getTime(pos) : commit.getTimestamp().getTime();
+            if (time < options.since) {
+                continue;
+            }
+            if (commit == null) {
+                commit = getCommitFromId(commitId);
+            }
+            out.print(options.format(commit));
+            shown += 1;
         }
-        System.out.println(sb);
+        if (!options.oneline) {
+            out.println();
+        }
+        out.flush();
+    }
+
+    /** Returns a buffered writer on standard output; callers flush it. */
+    private PrintWriter newOutput() {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
     }
 
     public void find(String commitMessage) {
-        StringBuffer sb = new StringBuffer();
-        List<String> commitIds = plainFilenamesIn(COMMITS_DIR);
-        assert commitIds != null;
-        for (String commitId : commitIds) {
-            Commit commit = getCommitFromId(commitId);
-            assert commit != null;
-            if (commit.getMessage().contains(commitMessage)) {
-                sb.append(commit.getID()).append("\n");
-            }
+        printFound(getMessageIndex().find(commitMessage));
+    }
+
+    /** Prints the ids of the commits whose message matches REGEX. */
+    public void findGrep(String regex) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException excp) {
+            throw error("Invalid regular expression.");
+        }
+        printFound(getMessageIndex().grep(pattern));
+    }
+
+    private void printFound(List<String> commitIds) {
+        if (commitIds.isEmpty()) {
+            throw error("Found no commit with that message.");
         }
-        if (sb.length() == 0) {
-            System.out.println("Found no commit with that message.");
-            System.exit(0);
+        PrintWriter out = newOutput();
+        for (String commitId : commitIds) {
+            out.println(commitId);
         }
-        System.out.println(sb);
+        out.println();
+        out.flush();
     }
 
     public void status() {
@@ -231,22 +344,32 @@ public class Repository {
 
         sb.append("=== Staged Files ===\n");
         Stage stage = readStage();
-        for (String filename : stage.getAdded().keySet()) {
+        for (String filename : new TreeSet<>(stage.getAdded().keySet())) {
             sb.append(filename).append("\n");
         }
         sb.append("\n");
         sb.append("=== Removed Files ===\n");
-        for (String filename : stage.getRemoved()) {
+        for (String filename : new TreeSet<>(stage.getRemoved())) {
             sb.append(filename).append("\n");
         }
         sb.append("\n");
 
+        List<String> modified = new ArrayList<>();
+        List<String> untracked = new ArrayList<>();
+        getWorkingTreeStatus(stage, modified, untracked);
         sb.append("=== Modifications Not Staged For Commit ===\n");
+        for (String line : modified) {
+            sb.append(line).append("\n");
+        }
         sb.append("\n");
         sb.append("=== Untracked Files ===\n");
+        for (String filename : untracked) {
+            sb.append(filename).append("\n");
+        }
         sb.append("\n");
 
         System.out.println(sb);
+        writeIndex();
     }
 
     public void checkoutFileFromHead(String filename) {
@@ -255,86 +378,160 @@ public class Repository {
     }
 
     public void checkoutFileFromCommitId(String commitId, String filename) {
-        String fullId = getCompleteCommitId(commitId);
-        Commit commit = getCommitFromId(fullId);
-        if (commit == null) {
-            System.out.println("No commit with that id exists.");
-            System.exit(0);
+        checkoutFileFromCommit(getCommitFromPrefix(commitId), filename);
+    }
+
+    /** Prints, as unified diffs, how the files differ between the commits
+     *  COMMITIDS[0] and COMMITIDS[1], or between COMMITIDS[0] and the
+     *  working files, or, with no commits, between the stage and the
+     *  working files.  Only the blobs of files whose ids differ are read,
+     *  and between two commits, subtrees with equal ids are not even
+     *  looked at. */
+    public void diff(String... commitIds) {
+        Map<String, String[]> changes = new TreeMap<>();
+        if (commitIds.length == 2) {
+            Tree.diff(objects, getCommitFromPrefix(commitIds[0]).getTree(),
+                    getCommitFromPrefix(commitIds[1]).getTree(), changes);
+            printDiff(changes, false);
+            return;
+        }
+        Map<String, String> staged = getStagedFiles();
+        Map<String, String> old = commitIds.length == 0 ? staged : getFiles(getCommitFromPrefix(commitIds[0]));
+        Set<String> filenames = new TreeSet<>(old.keySet());
+        filenames.addAll(staged.keySet());
+        Map<String, String> working = getWorkingBlobIds(filenames);
+        for (String filename : filenames) {
+            String oldId = old.get(filename);
+            String newId = working.get(filename);
+            if (!Objects.equals(oldId, newId)) {
+                changes.put(filename, new String[] {oldId, newId});
+            }
+        }
+        printDiff(changes, true);
+        writeIndex();
+    }
+
+    /** Prints how the stage differs from the head commit. */
+    public void diffStaged() {
+        Map<String, String> head = getFiles(getHead());
+        Map<String, String> staged = getStagedFiles();
+        Map<String, String[]> changes = new TreeMap<>();
+        Set<String> filenames = new TreeSet<>(head.keySet());
+        filenames.addAll(staged.keySet());
+        for (String filename : filenames) {
+            String oldId = head.get(filename);
+            String newId = staged.get(filename);
+            if (!Objects.equals(oldId, newId)) {
+                changes.put(filename, new String[] {oldId, newId});
+            }
+        }
+        printDiff(changes, false);
+    }
+
+    /** Prints CHANGES, (filename, {old blob id, new blob id}) with null for
+     *  a missing file, as unified diffs.  The new versions are the working
+     *  files if WORKING. */
+    private void printDiff(Map<String, String[]> changes, boolean working) {
+        OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+        UnifiedDiff diff = new UnifiedDiff(out);
+        try {
+            for (Map.Entry<String, String[]> change : changes.entrySet()) {
+                String filename = change.getKey();
+                String oldId = change.getValue()[0];
+                String newId = change.getValue()[1];
+                UnifiedDiff.Source old = oldId == null ? null : () -> openBlob(oldId);
+                UnifiedDiff.Source now;
+                if (newId == null) {
+                    now = null;
+                } else if (working) {
+                    now = () -> new FileInputStream(join(CWD, filename));
+                } else {
+                    now = () -> openBlob(newId);
+                }
+                diff.write(filename, old, now);
+            }
+            out.flush();
+        } catch (IOException excp) {
+            throw error("Cannot show the differences.");
         }
-        checkoutFileFromCommit(commit, filename);
+    }
+
+    /** Returns the files as they would be committed now: those of the head
+     *  commit with the stage applied. */
+    private Map<String, String> getStagedFiles() {
+        Stage stage = readStage();
+        Map<String, String> files = new HashMap<>(getFiles(getHead()));
+        files.putAll(stage.getAdded());
+        files.keySet().removeAll(stage.getRemoved());
+        return files;
     }
 
     public void checkoutBranch(String branchName) {
         File branchFile = getBranchFile(branchName);
         String headBranchName = getHeadBranchName();
         if (!branchFile.exists()) {
-            System.out.println("No such branch exists.");
-            System.exit(0);
+            throw error("No such branch exists.");
         } else if (headBranchName.equals(branchName)) {
-            System.out.println("No need to checkout the current branch.");
-            System.exit(0);
+            throw error("No need to checkout the current branch.");
         }
         Commit otherCommit = getCommitFromBranchName(branchName);
-        validUntrackedFiles(otherCommit.getBlobs());
-        clearStage();
+        validUntrackedFiles(getFiles(otherCommit));
         replaceWorkingPlaceWithCommit(otherCommit);
-        writeContents(HEAD, branchName);
+        Journal tx = new Journal(GITLET_DIR);
+        clearStage(tx);
+        tx.replace(HEAD, branchName);
+        tx.commit();
+        writeIndex();
     }
 
     public void branch(String branchName) {
         File branch = join(HEADS_DIR, branchName);
         if (branch.exists()) {
-            System.out.println("A branch with that name already exists.");
-            System.exit(0);
+            throw error("A branch with that name already exists.");
         }
         String commitId = getHeadCommitId();
-        writeContents(branch, commitId);
+        writeAtomically(branch, commitId);
     }
 
     public void rmBranch(String branchName) {
         File branch = join(HEADS_DIR, branchName);
         if (!branch.exists()) {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
+            throw error("A branch with that name does not exist.");
         }
         String headBranchName = getHeadBranchName();
         if (headBranchName.equals(branchName)) {
-            System.out.println("Cannot remove the current branch.");
-            System.exit(0);
+            throw error("Cannot remove the current branch.");
         }
         branch.delete();
     }
 
     public void reset(String commitId) {
-        File file = join(COMMITS_DIR, commitId);
-        if (!file.exists()) {
-            System.out.println("No commit with that id exists.");
-            System.exit(0);
-        }
+        commitId = getCompleteCommitId(commitId);
         Commit commit = getCommitFromId(commitId);
-        assert commit != null;
-        validUntrackedFiles(commit.getBlobs());
+        if (commit == null) {
+            throw error("No commit with that id exists.");
+        }
+        validUntrackedFiles(getFiles(commit));
         replaceWorkingPlaceWithCommit(commit);
-        clearStage();
-        String headBranchName = getHeadBranchName();
-        writeContents(join(HEADS_DIR, headBranchName), commitId);
+        Journal tx = new Journal(GITLET_DIR);
+        clearStage(tx);
+        tx.replace(getBranchFile(getHeadBranchName()), commitId);
+        tx.commit();
+        writeIndex();
     }
 
     public void merge(String branchName) {
         Stage stage = readStage();
         if (!stage.isEmpty()) {
-            System.out.println("You have uncommitted changes.");
-            System.exit(0);
+            throw error("You have uncommitted changes.");
         }
         File otherBranchFile = getBranchFile(branchName);
         if (!otherBranchFile.exists()) {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
+            throw error("A branch with that name does not exist.");
         }
         String headBranchName = getHeadBranchName();
         if (branchName.equals(headBranchName)) {
-            System.out.println("Cannot merge a branch with itself.");
-            System.exit(0);
+            throw error("Cannot merge a branch with itself.");
         }
 
         Commit head = getHead();
@@ -356,19 +553,225 @@ public class Repository {
         commitWith(message, parents);
     }
 
+    /** Packs all objects into a single pack.  With DELTA, every version of
+     *  a file is stored as a delta against the next newer version where
+     *  that is smaller. */
+    public void gc(boolean delta) {
+        PACKS_DIR.mkdir();
+        int depth = new Config(CONFIG).getInt(Config.DELTA_DEPTH, 10);
+        objects.gc(delta ? getFileHistories() : null, depth);
+    }
+
+    /** Records the repository whose .gitlet directory is DIR as the remote
+     *  NAME.  DIR is kept as given, with "/" as the separator, and may be
+     *  relative to the working directory. */
+    public void addRemote(String name, String dir) {
+        Config config = new Config(CONFIG);
+        if (config.get(Config.remoteDir(name), null) != null) {
+            throw error("A remote with that name already exists.");
+        }
+        config.set(Config.remoteDir(name), dir);
+        writeAtomically(CONFIG, config.encode());
+    }
+
+    public void rmRemote(String name) {
+        Config config = new Config(CONFIG);
+        if (config.get(Config.remoteDir(name), null) == null) {
+            throw error("A remote with that name does not exist.");
+        }
+        config.unset(Config.remoteDir(name));
+        writeAtomically(CONFIG, config.encode());
+    }
+
+    /** Copies the history of the branch BRANCHNAME of the remote
+     *  REMOTENAME that this repository lacks, and points the branch
+     *  REMOTENAME/BRANCHNAME at its head. */
+    @SuppressWarnings("try")
+    public void fetch(String remoteName, String branchName) {
+        Repository remote = getRemote(remoteName);
+        try (RepoLock lock = remote.lock(true)) {
+            Journal.recover(remote.GITLET_DIR);
+            File remoteBranch = remote.getBranchFile(branchName);
+            if (!remoteBranch.isFile()) {
+                throw error("That remote does not have that branch.");
+            }
+            String tip = readContentsAsString(remoteBranch);
+            PackFile pack = remote.sendTo(this, tip);
+            File branch = getBranchFile(remoteName + "/" + branchName);
+            branch.getParentFile().mkdirs();
+            Journal tx = new Journal(GITLET_DIR);
+            if (pack != null) {
+                tx.sync(List.of(pack.getPack(), pack.getIdx()));
+            }
+            tx.replace(branch, tip);
+            tx.commit();
+        }
+    }
+
+    /** Appends the commits of the current branch that the branch
+     *  BRANCHNAME of the remote REMOTENAME lacks to it, creating the branch
+     *  if it does not exist.  The remote branch must be an ancestor of the
+     *  current head. */
+    @SuppressWarnings("try")
+    public void push(String remoteName, String branchName) {
+        Repository remote = getRemote(remoteName);
+        try (RepoLock lock = remote.lock(false)) {
+            Journal.recover(remote.GITLET_DIR);
+            String head = getHeadCommitId();
+            File remoteBranch = remote.getBranchFile(branchName);
+            if (remoteBranch.isFile()) {
+                String remoteHead = readContentsAsString(remoteBranch);
+                if (!objects.contains(ObjectStore.COMMIT, remoteHead)) {
+                    throw error("Please pull down remote changes before pushing.");
+                }
+                int pos = getGraphPosition(remoteHead);
+                if (getCommitGraph().mergeBase(getGraphPosition(head), pos) != pos) {
+                    throw error("Please pull down remote changes before pushing.");
+                }
+            }
+            PackFile pack = sendTo(remote, head);
+            Journal tx = new Journal(remote.GITLET_DIR);
+            if (pack != null) {
+                tx.sync(List.of(pack.getPack(), pack.getIdx()));
+            }
+            tx.replace(remoteBranch, head);
+            tx.commit();
+        }
+    }
+
+    /** Fetches the branch BRANCHNAME of the remote REMOTENAME and merges
+     *  it into the current branch.  If the current branch is behind, it is
+     *  fast-forwarded in place rather than replaced by the remote branch. */
+    public void pull(String remoteName, String branchName) {
+        fetch(remoteName, branchName);
+        String remoteBranch = remoteName + "/" + branchName;
+        Commit head = getHead();
+        Commit other = getCommitFromBranchName(remoteBranch);
+        if (readStage().isEmpty() && !head.getID().equals(other.getID())
+                && getSplitPoint(head, other).getID().equals(head.getID())) {
+            // merge would check out the remote branch; the current branch
+            // moves up to it instead.
+            reset(other.getID());
+            System.out.println("Current branch fast-forwarded.");
+            return;
+        }
+        merge(remoteBranch);
+    }
+
+    /** Returns the repository recorded as the remote NAME. */
+    private Repository getRemote(String name) {
+        String dir = new Config(CONFIG).get(Config.remoteDir(name), null);
+        File gitletDir = dir == null ? null : new File(dir.replace("/", File.separator));
+        if (gitletDir != null && !gitletDir.isAbsolute()) {
+            gitletDir = join(CWD, gitletDir.getPath());
+        }
+        if (gitletDir == null || !gitletDir.isDirectory()) {
+            throw error("Remote directory not found.");
+        }
+        return new Repository(gitletDir.getAbsoluteFile().getParent());
+    }
+
+    /** Copies the commit TIP and all of its history that TARGET lacks into
+     *  TARGET as one pack (see Transfer), and brings TARGET's commit graph
+     *  and indexes up to date.  TARGET's refs are left to the caller.
+     *  Returns the new pack, or null if TARGET had everything. */
+    private PackFile sendTo(Repository target, String tip) {
+        Transfer transfer = new Transfer(objects, target.objects);
+        List<String> commitIds = transfer.missingCommits(getCommitGraph(), getGraphPosition(tip));
+        if (commitIds.isEmpty()) {
+            return null;
+        }
+        PackFile pack = transfer.send(commitIds, target.PACKS_DIR);
+        target.getGraphPosition(tip);
+        target.getCommitIndex().addAll(commitIds);
+        List<String> messages = new ArrayList<>(commitIds.size());
+        for (String id : commitIds) {
+            messages.add(target.getCommitFromId(id).getMessage());
+        }
+        target.getMessageIndex().addAll(commitIds, messages);
+        return pack;
+    }
+
+    /** Returns, for every file that was ever committed, the blob ids of its
+     *  versions, newest first.  Commits are visited newest first and each
+     *  is compared with its first parent, so a version is listed by the
+     *  commit that introduced it. */
+    private List<List<String>> getFileHistories() {
+        CommitGraph commitGraph = getCommitGraph();
+        for (String id : getCommitIndex().ids()) {
+            getGraphPosition(id);
+        }
+        Map<String, List<String>> histories = new HashMap<>();
+        for (int pos = commitGraph.size() - 1; pos >= 0; pos -= 1) {
+            int[] parents = commitGraph.getParents(pos);
+            String parentTree = parents.length == 0 ? Tree.EMPTY_ID : getCommitTree(commitGraph.getId(parents[0]));
+            Map<String, String[]> changes = new HashMap<>();
+            Tree.diff(objects, parentTree, getCommitTree(commitGraph.getId(pos)), changes);
+            for (Map.Entry<String, String[]> change : changes.entrySet()) {
+                String blobId = change.getValue()[1];
+                if (blobId != null) {
+                    histories.computeIfAbsent(change.getKey(), k -> new ArrayList<>()).add(blobId);
+                }
+            }
+        }
+        return new ArrayList<>(histories.values());
+    }
+
     /**
      * helper functions
      */
+
+    /** Fills MODIFIED with the "Modifications Not Staged For Commit" lines
+     *  and UNTRACKED with the untracked files, both in lexicographic order.
+     *  Only files whose stat data changed since they were last hashed are
+     *  read. */
+    private void getWorkingTreeStatus(Stage stage, List<String> modified, List<String> untracked) {
+        Map<String, String> headBlobs = getFiles(getHead());
+        List<String> workingFiles = listWorkingFiles(CWD);
+        Set<String> filenames = new TreeSet<>(workingFiles);
+        filenames.addAll(headBlobs.keySet());
+        filenames.addAll(stage.getAdded().keySet());
+        Map<String, String> workingIds = getWorkingBlobIds(filenames);
+        for (String filename : filenames) {
+            String workingId = workingIds.get(filename);
+            String stagedId = stage.getAdded().get(filename);
+            String headId = headBlobs.get(filename);
+            boolean tracked = headId != null && !stage.getRemoved().contains(filename);
+            if (workingId == null) {
+                if (stagedId != null || tracked) {
+                    modified.add(filename + " (deleted)");
+                }
+            } else if (stagedId != null) {
+                if (!stagedId.equals(workingId)) {
+                    modified.add(filename + " (modified)");
+                }
+            } else if (tracked) {
+                if (!headId.equals(workingId)) {
+                    modified.add(filename + " (modified)");
+                }
+            } else {
+                untracked.add(filename);
+            }
+        }
+        getIndex().retainAll(new HashSet<>(workingFiles));
+    }
     private void mergeWith(Commit splitPoint, Commit head, Commit other) {
-        Set<String> allFilenames = getAllFilenames(splitPoint, head, other);
+        // Only files the other branch changed since the split point can need
+        // anything; subtrees it left alone are not even read.
+        Map<String, String[]> otherChanges = new TreeMap<>();
+        Tree.diff(objects, splitPoint.getTree(), other.getTree(), otherChanges);
+        Map<String, String> headFiles = getFiles(head);
+        Map<String, String> otherFiles = new HashMap<>();
         List<String> rewrite = new ArrayList<>();
         List<String> remove = new ArrayList<>();
         List<String> conflict = new ArrayList<>();
 
-        for (String filename : allFilenames) {
-            String sId = splitPoint.getBlobs().getOrDefault(filename, "");
-            String hId = head.getBlobs().getOrDefault(filename, "");
-            String oId = other.getBlobs().getOrDefault(filename, "");
+        for (Map.Entry<String, String[]> change : otherChanges.entrySet()) {
+            String filename = change.getKey();
+            String sId = Objects.requireNonNullElse(change.getValue()[0], "");
+            String oId = Objects.requireNonNullElse(change.getValue()[1], "");
+            String hId = headFiles.getOrDefault(filename, "");
+            otherFiles.put(filename, oId);
             if (sId.equals(oId) || hId.equals(oId)) {
                 continue;
             } // NO.3-1, No.4, No.7
@@ -386,8 +789,7 @@ public class Repository {
         List<String> untrackedFiles = getUntrackedFiles();
         for (String filename : untrackedFiles) {
             if (rewrite.contains(filename) || remove.contains(filename) || conflict.contains(filename)) {
-                System.out.println("There is an untracked file in the way; delete it, or add and commit it first.");
-                System.exit(0);
+                throw error("There is an untracked file in the way; delete it, or add and commit it first.");
             }
         }
 
@@ -398,142 +800,143 @@ public class Repository {
         }
         if (!rewrite.isEmpty()) {
             for (String filename : rewrite) {
-                String oId = other.getBlobs().getOrDefault(filename, "");
-                Blob blob = getBlobFromId(oId);
-                File file = join(CWD, filename);
-                writeContents(file, (Object) blob.getContent());
+                String oId = otherFiles.get(filename);
+                writeBlobToFile(oId, join(CWD, filename));
                 add(filename);
             }
         }
-        if (!conflict.isEmpty()) {
-            for (String filename : conflict) {
-                String oId = other.getBlobs().getOrDefault(filename, "");
-                String hId = head.getBlobs().getOrDefault(filename, "");
-                String headContent = getBlobContentFromId(hId);
-                String otherContent = getBlobContentFromId(oId);
-                String content = getConflictFile(headContent.split("\n"), otherContent.split("\n"));
-                File file = join(CWD, filename);
-                writeContents(file, content);
-                System.out.println("Encountered a merge conflict.");
-            }
+        // Files both branches changed are merged line by line; only the
+        // lines that clash get conflict markers.  Either way the result is
+        // staged, so the merge commit records it.
+        boolean conflicted = false;
+        for (String filename : conflict) {
+            String sId = Objects.requireNonNullElse(otherChanges.get(filename)[0], "");
+            String hId = headFiles.getOrDefault(filename, "");
+            String oId = otherFiles.get(filename);
+            Merge3 merged = Merge3.merge(readBlob(sId), readBlob(hId), readBlob(oId));
+            writeContents(join(CWD, filename), (Object) merged.getText());
+            add(filename);
+            conflicted |= merged.hasConflicts();
+        }
+        if (conflicted) {
+            System.out.println("Encountered a merge conflict.");
         }
     }
 
-    private String getConflictFile(String[] head, String[] other) {
-        StringBuffer sb = new StringBuffer();
-        int h = 0, o = 0, headLength = head.length, otherLength = other.length;
-        while (h < headLength && o < otherLength) {
-            if (head[h].equals(other[o])) {
-                sb.append(head[h]);
-            } else {
-                sb.append(getConflictContent(head[h], other[o]));
-            }
-            h += 1;
-            o += 1;
-        }
-        while (h < headLength) {
-            sb.append(getConflictContent(head[h], ""));
-            h += 1;
+    /** Returns the content of the blob ID, or nothing if ID is "". */
+    private byte[] readBlob(String id) {
+        if (id.equals("")) {
+            return new byte[0];
         }
-        while (o < otherLength) {
-            sb.append(getConflictContent("", other[o]));
-            o += 1;
+        try (InputStream in = openBlob(id)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw error("Cannot read blob %s.", id);
         }
-        return sb.toString();
-    }
-
-    private String getConflictContent(String head, String other) {
-        StringBuffer sb = new StringBuffer();
-        sb.append("<<<<<<< HEAD\n");
-        sb.append(head.equals("") ? head : head + "\n");
-        sb.append("=======\n");
-        sb.append(other.equals("") ? other : other + "\n");
-        sb.append(">>>>>>>\n");
-        return sb.toString();
     }
 
-    private String getBlobContentFromId(String id) {
-        if (id.equals("")) {
-            return "";
+    /** Returns the files of COMMIT as (filename, blobId). */
+    private Map<String, String> getFiles(Commit commit) {
+        Map<String, String> files = treeFiles.get(commit.getTree());
+        if (files == null) {
+            files = new HashMap<>();
+            Tree.flatten(objects, commit.getTree(), "", files);
+            files = Collections.unmodifiableMap(files);
+            // About the size of a filename and an id per file.
+            treeFiles.put(commit.getTree(), files, files.size() * 128L);
         }
-        return getBlobFromId(id).getContentAsString();
+        return files;
     }
 
-    private Set<String> getAllFilenames(Commit splitPoint, Commit head, Commit other) {
-        Set<String> res = new HashSet<>();
-        res.addAll(splitPoint.getBlobs().keySet());
-        res.addAll(head.getBlobs().keySet());
-        res.addAll(other.getBlobs().keySet());
-        return res;
+    /** Returns the cache of decoded commits and trees, e.g. to read its hit
+     *  and miss counts. */
+    public ObjectCache<String, Object> getObjectCache() {
+        return objects.getCache();
     }
 
     // this method return the latest common ancestor of the two commits.
+    // Only the commit graph is walked; the split point is the one commit object read.
     private Commit getSplitPoint(Commit head, Commit other) {
-        Set<String> headAncestors = bfsFromCommit(head);
-        Queue<Commit> queue = new LinkedList<>();
-        queue.add(other);
-        while (!queue.isEmpty()) {
-            Commit commit = queue.poll();
-            if (headAncestors.contains(commit.getID())) {
-                return commit;
-            }
-            if (!commit.getParents().isEmpty()) {
-                for (String id : commit.getParents()) {
-                    queue.add(getCommitFromId(id));
-                }
-            }
+        CommitGraph commitGraph = getCommitGraph();
+        int base = commitGraph.mergeBase(getGraphPosition(head.getID()), getGraphPosition(other.getID()));
+        if (base < 0) {
+            return new Commit();
         }
-        return new Commit();
+        return getCommitFromId(commitGraph.getId(base));
     }
 
-    private Set<String> bfsFromCommit(Commit head) {
-        Set<String> res = new HashSet<>();
-        Queue<Commit> queue = new LinkedList<>();
-        queue.add(head);
-        while (!queue.isEmpty()) {
-            Commit commit = queue.poll();
-            if (!commit.getParents().isEmpty()) {
-                for (String id : commit.getParents()) {
-                    queue.add(getCommitFromId(id));
+    private CommitGraph getCommitGraph() {
+        if (graph == null) {
+            graph = new CommitGraph(COMMIT_GRAPH);
+        }
+        return graph;
+    }
+
+    /** Returns the position of commit COMMITID in the commit graph, first
+     *  adding it and any of its ancestors the graph is missing (e.g. in a
+     *  repository created before the graph existed). */
+    private int getGraphPosition(String commitId) {
+        CommitGraph commitGraph = getCommitGraph();
+        int pos = commitGraph.find(commitId);
+        if (pos >= 0) {
+            return pos;
+        }
+        Deque<Commit> stack = new ArrayDeque<>();
+        stack.push(getCommitFromId(commitId));
+        while (!stack.isEmpty()) {
+            Commit commit = stack.peek();
+            boolean ready = true;
+            for (String parentId : commit.getParents()) {
+                if (commitGraph.find(parentId) < 0) {
+                    stack.push(getCommitFromId(parentId));
+                    ready = false;
                 }
             }
-            res.add(commit.getID());
+            if (ready) {
+                commitGraph.add(stack.pop());
+            }
         }
-        return res;
+        return commitGraph.find(commitId);
     }
 
     private String getHeadCommitId() {
         return getHead().getID();
     }
 
+    /** Makes the working files those of COMMIT.  Only files that differ
+     *  between the current head and COMMIT, or whose working copy was
+     *  changed since it was last hashed, are deleted or written; the writes
+     *  run in parallel. */
     private void replaceWorkingPlaceWithCommit(Commit commit) {
-        clearWorkingPlace();
-        for (Map.Entry<String, String> item : commit.getBlobs().entrySet()) {
-            String filename = item.getKey();
-            String blobId = item.getValue();
-            File file = join(CWD, filename);
-            Blob blob = readObject(join(BLOBS_DIR, blobId), Blob.class);
-            writeContents(file, (Object) blob.getContent());
+        Map<String, String[]> changes = new HashMap<>();
+        Tree.diff(objects, getHead().getTree(), commit.getTree(), changes);
+        Map<String, String> toWrite = new HashMap<>();
+        for (Map.Entry<String, String[]> change : changes.entrySet()) {
+            String blobId = change.getValue()[1];
+            if (blobId == null) {
+                deleteWorkingFile(change.getKey());
+                getIndex().remove(change.getKey());
+            } else {
+                toWrite.put(change.getKey(), blobId);
+            }
         }
-    }
-
-    private void clearWorkingPlace() {
-        File[] files = CWD.listFiles(gitletFilter);
-        assert files != null;
-        for (File file : files) {
-            delFile(file);
+        Map<String, String> files = getFiles(commit);
+        List<String> unchanged = new ArrayList<>();
+        for (String filename : files.keySet()) {
+            if (!changes.containsKey(filename)) {
+                unchanged.add(filename);
+            }
         }
-    }
-
-    private final FilenameFilter gitletFilter = (dir, name) -> !name.equals(".gitlet");
-
-    private void delFile(File file) {
-        if (file.isDirectory()) {
-            for (File f : Objects.requireNonNull(file.listFiles())) {
-                delFile(f);
+        Map<String, String> workingIds = getWorkingBlobIds(unchanged);
+        for (String filename : unchanged) {
+            if (!files.get(filename).equals(workingIds.get(filename))) {
+                toWrite.put(filename, files.get(filename));
             }
         }
-        file.delete();
+        forEachInParallel(toWrite.entrySet(), item -> writeBlobToFile(item.getValue(), join(CWD, item.getKey())));
+        for (Map.Entry<String, String> item : toWrite.entrySet()) {
+            recordWorkingFile(item.getKey(), item.getValue());
+        }
     }
 
     private void validUntrackedFiles(Map<String, String> blobs) {
@@ -541,12 +944,12 @@ public class Repository {
         if (untrackedFiles.isEmpty()) {
             return;
         }
+        Map<String, String> workingIds = getWorkingBlobIds(untrackedFiles);
         for (String filename : untrackedFiles) {
-            String blobId = new Blob(filename, CWD).getId();
-            String otherId = blobs.getOrDefault(filename, "");
-            if (!otherId.equals(blobId)) {
-                System.out.println("There is an untracked file in the way; delete it, or add and commit it first.");
-                System.exit(0);
+            // Untracked files the commit does not track are left alone.
+            String otherId = blobs.get(filename);
+            if (otherId != null && !otherId.equals(workingIds.get(filename))) {
+                throw error("There is an untracked file in the way; delete it, or add and commit it first.");
             }
         }
     }
@@ -554,8 +957,8 @@ public class Repository {
     private List<String> getUntrackedFiles() {
         List<String> res = new ArrayList<>();
         List<String> stageFiles = readStage().getStagedFilename();
-        Set<String> headFiles = getHead().getBlobs().keySet();
-        for (String filename : Objects.requireNonNull(plainFilenamesIn(CWD))) {
+        Set<String> headFiles = getFiles(getHead()).keySet();
+        for (String filename : listWorkingFiles(CWD)) {
             if (!stageFiles.contains(filename) && !headFiles.contains(filename)) {
                 res.add(filename);
             }
@@ -566,80 +969,354 @@ public class Repository {
 
     private void checkoutFileFromCommit(Commit commit, String filename) {
         File file = join(CWD, filename);
-        String blobId = commit.getBlobs().getOrDefault(filename, "");
-        if (blobId.equals("")) {
-            System.out.println("File does not exist in that commit.");
-            System.exit(0);
+        String blobId = Tree.lookup(objects, commit.getTree(), filename);
+        if (blobId == null) {
+            throw error("File does not exist in that commit.");
         }
-        Blob blob = getBlobFromId(blobId);
-        writeContents(file, (Object) blob.getContent());
+        writeBlobToFile(blobId, file);
+        recordWorkingFile(filename, blobId);
+        writeIndex();
+    }
+
+    // Resolves an abbreviated commit id by binary search in the commit index.
+    /** Returns the commit whose id is or starts with COMMITID. */
+    private Commit getCommitFromPrefix(String commitId) {
+        Commit commit = getCommitFromId(getCompleteCommitId(commitId));
+        if (commit == null) {
+            throw error("No commit with that id exists.");
+        }
+        return commit;
     }
 
     private String getCompleteCommitId(String commitId) {
         if (commitId.length() == UID_LENGTH) {
             return commitId;
         }
+        String id = getCommitIndex().resolve(commitId);
+        if (CommitIndex.AMBIGUOUS.equals(id)) {
+            throw error("More than one commit has that id prefix.");
+        }
+        return id;
+    }
+
+    private CommitIndex getCommitIndex() {
+        if (commitIndex == null) {
+            commitIndex = new CommitIndex(COMMIT_INDEX);
+            if (!commitIndex.exists()) {
+                commitIndex.addAll(objects.ids(ObjectStore.COMMIT));
+            }
+        }
+        return commitIndex;
+    }
 
-        for (String id : Objects.requireNonNull(COMMITS_DIR.list())) {
-            if (id.startsWith(commitId)) {
-                return id;
+    /** Returns the message index, first building it from the commits if
+     *  the repository does not have one yet. */
+    private MessageIndex getMessageIndex() {
+        if (messageIndex == null) {
+            messageIndex = new MessageIndex(MESSAGES, MESSAGE_INDEX);
+            if (!messageIndex.exists()) {
+                List<String> ids = getCommitIndex().ids();
+                List<String> messages = new ArrayList<>(ids.size());
+                for (String id : ids) {
+                    messages.add(getCommitFromId(id).getMessage());
+                }
+                messageIndex.addAll(ids, messages);
             }
         }
-        return null;
+        return messageIndex;
     }
 
     private void commitWith(String message, List<Commit> parents) {
         Stage stage = readStage();
         if (stage.isEmpty()) {
-            System.out.println("No changes added to the commit.");
-            System.exit(0);
+            throw error("No changes added to the commit.");
         }
-        Commit commit = new Commit(message, parents, stage);
-        clearStage();
+        String tree = Tree.update(objects, parents.get(0).getTree(), stage.getAdded(), stage.getRemoved());
+        Commit commit = new Commit(message, parents, tree);
         writeCommitToFile(commit);
+        for (Commit parent : parents) {
+            getGraphPosition(parent.getID());
+        }
+        getCommitGraph().add(commit);
+        getCommitIndex().addAll(List.of(commit.getID()));
+        getMessageIndex().add(commit.getID(), commit.getMessage());
+
+        // The new objects, the cleared stage and the moved branch reach the
+        // disk as one transaction; a crash before it commits leaves the
+        // repository as it was, with some unreferenced objects.
+        Journal tx = new Journal(GITLET_DIR);
+        clearStage(tx);
+        tx.sync(objects.takeUnsynced());
+        tx.replace(getBranchFile(getHeadBranchName()), commit.getID());
+        tx.commit();
+    }
 
-        String branchName = getHeadBranchName();
-        File head = getBranchFile(branchName);
-        String commitId = commit.getID();
-        writeContents(head, commitId);
+    /** Locks the repository for one command, shared if the command only
+     *  reads it (see RepoLock), or returns null if there is no repository.
+     *  A command that would take it shared takes it exclusive instead when
+     *  a crash left a transaction to recover, which writes the repository.
+     *  A daemon also drops here what other processes changed while it did
+     *  not hold the lock. */
+    RepoLock lock(boolean shared) {
+        if (!GITLET_DIR.isDirectory()) {
+            return null;
+        }
+        int timeout = new Config(CONFIG).getInt(Config.LOCK_TIMEOUT, 10000);
+        Runnable beforeRelease = () -> {
+            if (trackLoaded) {
+                markLoaded();
+            }
+        };
+        RepoLock lock = RepoLock.acquire(join(GITLET_DIR, "lock"), shared, timeout, beforeRelease);
+        // No transaction can start while the lock is held shared, so one
+        // found missing here stays missing until the command ends.
+        if (shared && Journal.pending(GITLET_DIR)) {
+            lock.close();
+            shared = false;
+            lock = RepoLock.acquire(join(GITLET_DIR, "lock"), false, timeout, beforeRelease);
+        }
+        sharedLock = shared;
+        if (trackLoaded) {
+            refreshIfChanged();
+        }
+        return lock;
+    }
+
+    /** Drops everything loaded from disk that another process changed since
+     *  the last call of markLoaded.  A daemon serving many commands calls
+     *  this before each one. */
+    void refreshIfChanged() {
+        if (!fingerprint().equals(loadedState)) {
+            graph = null;
+            commitIndex = null;
+            messageIndex = null;
+            index = null;
+            objects.refresh();
+        }
+    }
+
+    /** Records the state on disk as the one loaded in memory, and from now
+     *  on checks it whenever the repository is locked. */
+    void markLoaded() {
+        trackLoaded = true;
+        loadedState = fingerprint();
+    }
+
+    /** Makes the next refreshIfChanged drop everything loaded. */
+    void markChanged() {
+        loadedState = null;
+    }
+
+    /** Returns the size and modification time of every file whose content
+     *  this repository keeps in memory between commands, and the names of
+     *  the packs.  Everything else (HEAD, branches, the stage) is read anew
+     *  by each command, and objects never change. */
+    private String fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        for (File file : new File[] {COMMIT_GRAPH, COMMIT_INDEX, MESSAGES, MESSAGE_INDEX, INDEX}) {
+            sb.append(Index.Stat.of(file)).append(' ');
+        }
+        List<String> packNames = plainFilenamesIn(PACKS_DIR);
+        if (packNames != null) {
+            sb.append(packNames);
+        }
+        return sb.toString();
+    }
+
+    private Index getIndex() {
+        if (index == null) {
+            index = Index.read(INDEX);
+        }
+        return index;
+    }
+
+    /** Writes the stat cache, unless the repository is only locked shared:
+     *  the entries it gained stay in memory, and are written by the next
+     *  command that holds the lock exclusive, if it is in this process. */
+    private void writeIndex() {
+        if (index != null && !sharedLock) {
+            index.write(INDEX);
+        }
+    }
+
+    /** Returns the blob id of the working file FILENAME, or null if there is
+     *  no such file.  The file is only read and hashed if its stat data
+     *  changed since the last time. */
+    private String getWorkingBlobId(String filename) {
+        File file = join(CWD, filename);
+        Index.Stat stat = Index.Stat.of(file);
+        if (stat == null) {
+            return null;
+        }
+        String blobId = getIndex().lookup(filename, stat);
+        if (blobId == null) {
+            blobId = Blob.hashFile(filename, file);
+            getIndex().update(filename, stat, blobId);
+        }
+        return blobId;
+    }
+
+    /** Returns the blob ids of those of the working files FILENAMES that
+     *  exist.  Files whose stat data changed are hashed in parallel. */
+    private Map<String, String> getWorkingBlobIds(Collection<String> filenames) {
+        Index index = getIndex();
+        Map<String, String> res = new ConcurrentHashMap<>();
+        Map<String, Index.Stat> rehashed = new ConcurrentHashMap<>();
+        forEachInParallel(filenames, filename -> {
+            File file = join(CWD, filename);
+            Index.Stat stat = Index.Stat.of(file);
+            if (stat == null) {
+                return;
+            }
+            String blobId = index.lookup(filename, stat);
+            if (blobId == null) {
+                blobId = Blob.hashFile(filename, file);
+                rehashed.put(filename, stat);
+            }
+            res.put(filename, blobId);
+        });
+        for (Map.Entry<String, Index.Stat> item : rehashed.entrySet()) {
+            index.update(item.getKey(), item.getValue(), res.get(item.getKey()));
+        }
+        return res;
+    }
+
+    /** Runs ACTION on every element of ITEMS, spread over core.parallelism
+     *  threads. */
+    private <T> void forEachInParallel(Collection<T> items, Consumer<T> action) {
+        int parallelism = new Config(CONFIG).getInt(Config.PARALLELISM,
+                Runtime.getRuntime().availableProcessors());
+        if (items.size() < 2 || parallelism <= 1) {
+            items.forEach(action);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> items.parallelStream().forEach(action)).get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("Interrupted.");
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw error("%s", cause.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Returns the names of all files under DIR, outside .gitlet, relative
+     *  to the working directory and in lexicographic order. */
+    private List<String> listWorkingFiles(File dir) {
+        List<String> res = new ArrayList<>();
+        try {
+            Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                    return d.equals(GITLET_DIR.toPath()) ? FileVisitResult.SKIP_SUBTREE
+                            : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        res.add(toFilename(f.toFile()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException excp) {
+            throw error("Cannot list %s.", dir.getPath());
+        }
+        Collections.sort(res);
+        return res;
+    }
+
+    /** Returns the name under which gitlet tracks FILE: its path relative to
+     *  the working directory, with '/' as separator. */
+    private String toFilename(File file) {
+        Path relative = CWD.toPath().toAbsolutePath().relativize(file.toPath().toAbsolutePath());
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    /** Deletes the working file FILENAME and any directories it leaves empty. */
+    private void deleteWorkingFile(String filename) {
+        File file = join(CWD, filename);
+        file.delete();
+        File dir = file.getParentFile();
+        while (!dir.equals(CWD) && dir.delete()) {
+            dir = dir.getParentFile();
+        }
+    }
+
+    /** Records that the working file FILENAME was just written from BLOBID. */
+    private void recordWorkingFile(String filename, String blobId) {
+        Index.Stat stat = Index.Stat.of(join(CWD, filename));
+        if (stat != null) {
+            getIndex().update(filename, stat, blobId);
+        }
     }
 
     private Stage readStage() {
-        return readObject(STAGE, Stage.class);
+        return Stage.decode(readContents(STAGE));
     }
 
     private void writeStage(Stage stage) {
-        writeObject(STAGE, stage);
+        writeAtomically(STAGE, stage.encode());
     }
 
-    private void clearStage() {
-        File[] files = STAGING_DIR.listFiles();
-        if (files == null) {
+    /** Replaces FILE in .gitlet with CONTENT all at once. */
+    private void writeAtomically(File file, Object content) {
+        Journal tx = new Journal(GITLET_DIR);
+        if (content instanceof String) {
+            tx.replace(file, (String) content);
+        } else {
+            tx.replace(file, (byte[]) content);
+        }
+        tx.commit();
+    }
+
+    /** Moves the staged blobs into the store and empties the stage as part
+     *  of TX. */
+    private void clearStage(Journal tx) {
+        List<String> staged = plainFilenamesIn(STAGING_DIR);
+        if (staged == null) {
             return;
         }
+        List<File> moved = new ArrayList<>();
         Path targetDir = BLOBS_DIR.toPath();
-        for (File file : files) {
-            Path source = file.toPath();
+        for (String blobId : staged) {
+            if (blobId.length() != UID_LENGTH) {
+                continue;
+            }
+            Path source = join(STAGING_DIR, blobId).toPath();
             try {
-                Files.move(source, targetDir.resolve(source.getFileName()), REPLACE_EXISTING);
+                moved.add(Files.move(source, targetDir.resolve(blobId), REPLACE_EXISTING).toFile());
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
-        writeStage(new Stage());
+        tx.sync(moved);
+        tx.replace(STAGE, new Stage().encode());
     }
 
     private void writeCommitToFile(Commit commit) {
-        File file = join(COMMITS_DIR, commit.getID());
-        writeObject(file, commit);
+        objects.writeLoose(ObjectStore.COMMIT, commit.getID(), commit.encode());
     }
 
     private Commit getCommitFromId(String commitId) {
-        File file = join(COMMITS_DIR, commitId);
-        if (commitId.equals("null") || !file.exists()) {
+        if (commitId == null || commitId.equals("null")) {
             return null;
         }
-        return readObject(file, Commit.class);
+        return objects.readCommit(commitId);
+    }
+
+    /** Returns the root tree id of commit COMMITID, decoding only as much
+     *  of the commit as that needs. */
+    private String getCommitTree(String commitId) {
+        return Commit.readTree(objects.read(ObjectStore.COMMIT, commitId));
     }
 
     private Commit getCommitFromBranchFile(File file) {
@@ -647,12 +1324,35 @@ public class Repository {
         return getCommitFromId(commitId);
     }
 
-    private Blob getBlobFromId(String blobId) {
-        File file = join(BLOBS_DIR, blobId);
-        return readObject(file, Blob.class);
+    /** Returns a stream over the content of the blob BLOBID. */
+    private InputStream openBlob(String blobId) {
+        InputStream content = objects.openBlob(blobId);
+        if (content == null) {
+            content = openStagedBlob(blobId);
+        }
+        return content;
+    }
+
+    private InputStream openStagedBlob(String blobId) {
+        try {
+            return new InflaterInputStream(new BufferedInputStream(new FileInputStream(join(STAGING_DIR, blobId))));
+        } catch (FileNotFoundException excp) {
+            throw error("Missing blob %s.", blobId);
+        }
     }
 
+    /** Writes the content of the blob BLOBID straight into FILE. */
+    private void writeBlobToFile(String blobId, File file) {
+        file.getParentFile().mkdirs();
+        Blob.writeContentTo(openBlob(blobId), file);
+    }
+
+    /** Returns the head file of the branch BRANCHNAME, which is a branch
+     *  of a remote (see fetch) if it is of the form REMOTE/BRANCH. */
     private File getBranchFile(String branchName) {
+        if (branchName.contains("/")) {
+            return join(REMOTES_DIR, branchName);
+        }
         return join(HEADS_DIR, branchName);
     }
 
@@ -670,8 +1370,7 @@ public class Repository {
         File branchFile = getBranchFile(branchName);
         Commit head = getCommitFromBranchFile(branchFile);
         if (head == null) {
-            System.out.println("error! cannot find HEAD!");
-            System.exit(0);
+            throw error("error! cannot find HEAD!");
         }
         return head;
     }
@@ -692,14 +1391,17 @@ public class Repository {
     }
 
     void messageIncorrectOperands() {
-        System.out.println("Incorrect operands.");
-        System.exit(0);
+        throw error("Incorrect operands.");
     }
 
+    /** Also finishes the transaction (see Journal) of a command that crashed,
+     *  so every command that checks this sees a consistent repository. */
     void checkIfInitDirectoryExists() {
         if (!GITLET_DIR.isDirectory()) {
-            System.out.println("Not in an initialized Gitlet directory.");
-            System.exit(0);
+            throw error("Not in an initialized Gitlet directory.");
+        }
+        if (!sharedLock) {
+            Journal.recover(GITLET_DIR);
         }
     }
 }
@@ -1,14 +1,21 @@
 package gitlet;
 
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 /**
  * Representing a staging area.
+ *
+ * The stage is stored as (see BinaryWriter)
+ *     ['S'][version][added count] then per file [name][blob id],
+ *     [removed count] then per file [name]
  */
-public class Stage implements Serializable {
+public class Stage {
+    private static final int TAG = 'S';
+    private static final int VERSION = 1;
+
     // <filename, blobId>
     private final HashMap<String, String> added;
     private final HashSet<String> removed;
@@ -40,6 +47,34 @@ public class Stage implements Serializable {
         return removed;
     }
 
+    byte[] encode() {
+        BinaryWriter out = new BinaryWriter(TAG, VERSION);
+        out.writeVarint(added.size());
+        for (Map.Entry<String, String> item : added.entrySet()) {
+            out.writeString(item.getKey()).writeId(item.getValue());
+        }
+        out.writeVarint(removed.size());
+        for (String filename : removed) {
+            out.writeString(filename);
+        }
+        return out.toByteArray();
+    }
+
+    static Stage decode(byte[] data) {
+        BinaryReader in = new BinaryReader(data, TAG, VERSION);
+        Stage stage = new Stage();
+        int n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            String filename = in.readString();
+            stage.added.put(filename, in.readId());
+        }
+        n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            stage.removed.add(in.readString());
+        }
+        return stage;
+    }
+
     public ArrayList<String> getStagedFilename() {
         ArrayList<String> res = new ArrayList<>();
         res.addAll(added.keySet());
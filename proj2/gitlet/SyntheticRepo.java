@@ -0,0 +1,249 @@
+package gitlet;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static gitlet.Utils.*;
+
+/** Builds a repository of a given shape to measure gitlet on (see
+ *  Benchmark), by running gitlet commands in this JVM on generated files.
+ *
+ *  The repository starts with a commit of FILES files spread over DIRS
+ *  directories, then gets COMMITS commits of CHANGES changed files each.
+ *  With more than one branch, commits go to the branches in turn and every
+ *  MERGEEVERY commits one of the other branches is merged into master.
+ *  Files are lines of random words, so that changes are line edits that
+ *  diff and merge see as such.  The same shape and seed always give the
+ *  same files.
+ *
+ *  @author Colin Wang
+ */
+class SyntheticRepo {
+    /** The shape of a generated repository. */
+    static class Shape {
+        int files = 1000;
+        int dirs = 20;
+        /** The smallest and largest file, in bytes. */
+        int minSize = 200;
+        int maxSize = 20000;
+        /** How file sizes are drawn between minSize and maxSize: "fixed"
+         *  (always minSize), "uniform" or "log-uniform" (mostly small files
+         *  and a few large ones). */
+        String sizes = "log-uniform";
+        int commits = 100;
+        /** The number of files each commit changes. */
+        int changes = 10;
+        int branches = 1;
+        int mergeEvery = 10;
+        long seed = 61;
+
+        /** Returns the shape given by the options in ARGS[FROM..], with
+         *  defaults for the rest, or null if they are malformed.  Options
+         *  this class does not know are left to the caller in REST. */
+        static Shape parse(String[] args, int from, List<String> rest) {
+            Shape shape = new Shape();
+            for (int i = from; i < args.length; i += 1) {
+                String option = args[i];
+                if (!List.of("--files", "--dirs", "--min-size", "--max-size", "--sizes", "--commits",
+                        "--changes", "--branches", "--merge-every", "--seed").contains(option)) {
+                    rest.add(option);
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    return null;
+                }
+                i += 1;
+                try {
+                    switch (option) {
+                        case "--files" -> shape.files = Integer.parseInt(args[i]);
+                        case "--dirs" -> shape.dirs = Integer.parseInt(args[i]);
+                        case "--min-size" -> shape.minSize = Integer.parseInt(args[i]);
+                        case "--max-size" -> shape.maxSize = Integer.parseInt(args[i]);
+                        case "--sizes" -> shape.sizes = args[i];
+                        case "--commits" -> shape.commits = Integer.parseInt(args[i]);
+                        case "--changes" -> shape.changes = Integer.parseInt(args[i]);
+                        case "--branches" -> shape.branches = Integer.parseInt(args[i]);
+                        case "--merge-every" -> shape.mergeEvery = Integer.parseInt(args[i]);
+                        default -> shape.seed = Long.parseLong(args[i]);
+                    }
+                } catch (NumberFormatException excp) {
+                    return null;
+                }
+            }
+            if (shape.files < 1 || shape.dirs < 1 || shape.minSize < 1 || shape.maxSize < shape.minSize
+                    || shape.commits < 0 || shape.changes < 1 || shape.branches < 1 || shape.mergeEvery < 1
+                    || !List.of("fixed", "uniform", "log-uniform").contains(shape.sizes)) {
+                return null;
+            }
+            return shape;
+        }
+
+        /** Returns this shape as the fields of a JSON object. */
+        String toJson() {
+            return String.format("\"files\": %d, \"dirs\": %d, \"minSize\": %d, \"maxSize\": %d, "
+                    + "\"sizes\": \"%s\", \"commits\": %d, \"changes\": %d, \"branches\": %d, "
+                    + "\"mergeEvery\": %d, \"seed\": %d", files, dirs, minSize, maxSize, sizes,
+                    commits, changes, branches, mergeEvery, seed);
+        }
+    }
+
+    private static final String[] WORDS = {
+        "wug", "gitlet", "commit", "branch", "merge", "blob", "tree", "head", "stage", "remote",
+        "hash", "pack", "delta", "index", "graph", "log", "status", "checkout", "reset", "find",
+    };
+    /** Swallows the output of the commands run. */
+    private static final PrintStream NO_OUTPUT = new PrintStream(OutputStream.nullOutputStream());
+
+    private final File dir;
+    private final Shape shape;
+    private final Random random;
+    /** The repository every command runs on, or null to start afresh for
+     *  each command, as separate processes would. */
+    private final Repository shared;
+    /** The generated files, relative to DIR. */
+    private final List<String> filenames = new ArrayList<>();
+
+    /** A repository of SHAPE in the working directory DIR.  If DAEMON,
+     *  every command runs on the same Repository, as under a Daemon. */
+    SyntheticRepo(File dir, Shape shape, boolean daemon) {
+        this.dir = dir;
+        this.shape = shape;
+        this.random = new Random(shape.seed);
+        this.shared = daemon ? new Repository(dir.getPath()) : null;
+    }
+
+    /** Creates the repository and its history. */
+    void generate() {
+        run("init");
+        if (shared != null) {
+            shared.markLoaded();
+        }
+        for (int i = 0; i < shape.files; i += 1) {
+            String filename = "d" + (i % shape.dirs) + "/f" + i + ".txt";
+            filenames.add(filename);
+            File file = join(dir, filename);
+            file.getParentFile().mkdirs();
+            writeContents(file, randomLines(nextSize()));
+        }
+        String[] dirs = new String[Math.min(shape.dirs, shape.files)];
+        for (int i = 0; i < dirs.length; i += 1) {
+            dirs[i] = "d" + i;
+        }
+        add(dirs);
+        run("commit", "Add " + shape.files + " files");
+        String[] branches = new String[shape.branches];
+        branches[0] = "master";
+        for (int i = 1; i < branches.length; i += 1) {
+            branches[i] = "branch" + i;
+            run("branch", branches[i]);
+        }
+        int merges = 0;
+        for (int c = 0; c < shape.commits; c += 1) {
+            checkout(branches[c % branches.length]);
+            add(changeFiles(shape.changes));
+            run("commit", "Commit " + c);
+            if (branches.length > 1 && (c + 1) % shape.mergeEvery == 0) {
+                checkout("master");
+                run("merge", branches[1 + merges % (branches.length - 1)]);
+                merges += 1;
+            }
+        }
+        checkout("master");
+    }
+
+    /** Runs the gitlet command ARGS on the repository without printing
+     *  anything. */
+    void run(String... args) {
+        PrintStream out = System.out;
+        System.setOut(NO_OUTPUT);
+        try {
+            Main.run(shared != null ? shared : new Repository(dir.getPath()), args);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /** Runs "add" on FILENAMES. */
+    void add(String... filenames) {
+        String[] args = new String[filenames.length + 1];
+        args[0] = "add";
+        System.arraycopy(filenames, 0, args, 1, filenames.length);
+        run(args);
+    }
+
+    /** Checks out the branch NAME unless it is the current one. */
+    void checkout(String name) {
+        if (!readContentsAsString(join(dir, ".gitlet", "HEAD")).equals(name)) {
+            run("checkout", name);
+        }
+    }
+
+    /** Edits N distinct working files, about one in ten of them a new one,
+     *  and returns their names.  An edit replaces, inserts or deletes a few
+     *  lines. */
+    String[] changeFiles(int n) {
+        List<String> res = new ArrayList<>();
+        while (res.size() < Math.min(n, filenames.size())) {
+            String filename;
+            if (random.nextInt(10) == 0) {
+                filename = "d" + random.nextInt(shape.dirs) + "/f" + filenames.size() + ".txt";
+                filenames.add(filename);
+                File file = join(dir, filename);
+                file.getParentFile().mkdirs();
+                writeContents(file, randomLines(nextSize()));
+            } else {
+                filename = filenames.get(random.nextInt(filenames.size()));
+                File file = join(dir, filename);
+                // Files added on another branch are not checked out.
+                if (res.contains(filename) || !file.isFile()) {
+                    continue;
+                }
+                List<String> lines = new ArrayList<>(Arrays.asList(readContentsAsString(file).split("\n", -1)));
+                int at = random.nextInt(lines.size());
+                switch (random.nextInt(3)) {
+                    case 0 -> lines.set(at, randomLine());
+                    case 1 -> lines.add(at, randomLine());
+                    default -> lines.remove(at);
+                }
+                writeContents(file, String.join("\n", lines));
+            }
+            res.add(filename);
+        }
+        return res.toArray(new String[0]);
+    }
+
+    private int nextSize() {
+        return switch (shape.sizes) {
+            case "fixed" -> shape.minSize;
+            case "uniform" -> shape.minSize + random.nextInt(shape.maxSize - shape.minSize + 1);
+            default -> (int) Math.round(Math.exp(Math.log(shape.minSize)
+                    + random.nextDouble() * (Math.log(shape.maxSize) - Math.log(shape.minSize))));
+        };
+    }
+
+    /** Returns lines of random words, about SIZE bytes of them. */
+    private String randomLines(int size) {
+        StringBuilder sb = new StringBuilder(size + 64);
+        while (sb.length() < size) {
+            sb.append(randomLine()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String randomLine() {
+        StringBuilder sb = new StringBuilder();
+        int words = 1 + random.nextInt(10);
+        for (int i = 0; i < words; i += 1) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
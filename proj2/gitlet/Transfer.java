@@ -0,0 +1,99 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/** Copies new history from one repository to another, for fetch and
+ *  push.
+ *
+ *  The commits to send are found by walking the sender's commit graph back
+ *  from the tip being sent and stopping at every commit the receiver
+ *  already has: since objects are only ever stored after everything they
+ *  refer to, the receiver then has all of that commit's history too.  For
+ *  each new commit only the trees the receiver lacks are read, and a tree
+ *  it has is not looked into, so the work done (like the data sent) grows
+ *  with the new history, not with the repository.
+ *
+ *  Everything is written into a single new pack of the receiver (see
+ *  PackWriter), which becomes visible all at once.  Deltas are sent as
+ *  deltas when their base is sent too, and rebuilt whole otherwise.
+ *
+ *  @author Colin Wang
+ */
+class Transfer {
+    private final ObjectStore from;
+    private final ObjectStore to;
+
+    /** A transfer of objects FROM one store TO another. */
+    Transfer(ObjectStore from, ObjectStore to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Returns the ids of the commits reachable from the commit at TIP of
+     *  GRAPH, the sender's commit graph, that the receiver does not have,
+     *  newest first. */
+    List<String> missingCommits(CommitGraph graph, int tip) {
+        List<String> res = new ArrayList<>();
+        boolean[] seen = new boolean[graph.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(tip);
+        seen[tip] = true;
+        while (!queue.isEmpty()) {
+            int pos = queue.remove();
+            String id = graph.getId(pos);
+            if (to.contains(ObjectStore.COMMIT, id)) {
+                continue;
+            }
+            res.add(id);
+            for (int parent : graph.getParents(pos)) {
+                if (!seen[parent]) {
+                    seen[parent] = true;
+                    queue.add(parent);
+                }
+            }
+        }
+        return res;
+    }
+
+    /** Writes the commits COMMITIDS, and every tree and blob of theirs the
+     *  receiver lacks, into one new pack in PACKSDIR, the receiver's pack
+     *  directory.  Returns the pack, or null if there was nothing to send. */
+    PackFile send(List<String> commitIds, File packsDir) {
+        packsDir.mkdir();
+        PackWriter writer = new PackWriter(packsDir);
+        try {
+            for (String id : commitIds) {
+                from.copyTo(writer, ObjectStore.COMMIT, id);
+                sendTree(writer, Commit.readTree(from.read(ObjectStore.COMMIT, id)));
+            }
+        } catch (GitletException excp) {
+            writer.abort();
+            throw excp;
+        }
+        PackFile pack = writer.finish();
+        to.refresh();
+        return pack;
+    }
+
+    /** Adds the tree ID to WRITER with whatever below it the receiver
+     *  lacks, unless the receiver has it already. */
+    private void sendTree(PackWriter writer, String id) {
+        if (id.equals(Tree.EMPTY_ID) || writer.contains(id) || to.contains(ObjectStore.TREE, id)) {
+            return;
+        }
+        from.copyTo(writer, ObjectStore.TREE, id);
+        for (Map.Entry<String, Tree.Entry> item : Tree.read(from, id).getEntries().entrySet()) {
+            Tree.Entry entry = item.getValue();
+            if (entry.isTree()) {
+                sendTree(writer, entry.getId());
+            } else if (!writer.contains(entry.getId()) && !to.contains(ObjectStore.BLOB, entry.getId())) {
+                from.copyTo(writer, ObjectStore.BLOB, entry.getId());
+            }
+        }
+    }
+}
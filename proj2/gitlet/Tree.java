@@ -0,0 +1,241 @@
+package gitlet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static gitlet.Utils.*;
+
+/**
+ * Represent a directory: the files and subdirectories directly in it, each
+ * named by the id of its blob or tree.
+ *
+ * A tree's id is the hash of its entries, so two directories with the same
+ * content are the same tree.  A commit only names its root tree, and a new
+ * commit writes new trees only for the directories on the paths it changed;
+ * every other directory is shared with the parent commit.  Two trees with
+ * the same id need not be looked at any further when comparing commits.
+ *
+ * A tree is stored as (see BinaryWriter)
+ *     ['T'][version][entry count] then per entry [is tree][name][id]
+ */
+public class Tree {
+    private static final int TAG = 'T';
+    private static final int VERSION = 1;
+
+    /** The id of the tree with no entries, which is never stored. */
+    static final String EMPTY_ID = new Tree().getId();
+
+    // <name, entry>
+    private final TreeMap<String, Entry> entries;
+
+    static class Entry {
+        private final boolean isTree;
+        private final String id;
+
+        Entry(boolean isTree, String id) {
+            this.isTree = isTree;
+            this.id = id;
+        }
+
+        boolean isTree() {
+            return isTree;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && ((Entry) o).isTree == isTree && ((Entry) o).id.equals(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(isTree, id);
+        }
+    }
+
+    public Tree() {
+        entries = new TreeMap<>();
+    }
+
+    private Tree(Tree other) {
+        entries = new TreeMap<>(other.entries);
+    }
+
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    public String getId() {
+        StringBuilder sb = new StringBuilder("tree\n");
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            Entry entry = item.getValue();
+            sb.append(entry.isTree ? "tree " : "blob ").append(entry.id).append(' ')
+                    .append(item.getKey()).append('\0');
+        }
+        return sha1(sb.toString());
+    }
+
+    /** Returns the tree ID stored in OBJECTS. */
+    static Tree read(ObjectStore objects, String id) {
+        if (id.equals(EMPTY_ID)) {
+            return new Tree();
+        }
+        Tree tree = objects.readTree(id);
+        if (tree == null) {
+            throw error("Missing tree %s.", id);
+        }
+        return tree;
+    }
+
+    private byte[] encode() {
+        BinaryWriter out = new BinaryWriter(TAG, VERSION);
+        out.writeVarint(entries.size());
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            Entry entry = item.getValue();
+            out.writeByte(entry.isTree ? 1 : 0).writeString(item.getKey()).writeId(entry.id);
+        }
+        return out.toByteArray();
+    }
+
+    static Tree decode(byte[] data) {
+        BinaryReader in = new BinaryReader(data, TAG, VERSION);
+        Tree tree = new Tree();
+        int n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            boolean isTree = in.readByte() == 1;
+            String name = in.readString();
+            tree.entries.put(name, new Entry(isTree, in.readId()));
+        }
+        return tree;
+    }
+
+    /** Stores this tree in OBJECTS unless it is there already, and returns
+     *  its id. */
+    String write(ObjectStore objects) {
+        String id = getId();
+        if (!id.equals(EMPTY_ID) && !objects.contains(ObjectStore.TREE, id)) {
+            objects.writeLoose(ObjectStore.TREE, id, encode());
+        }
+        return id;
+    }
+
+    /** Returns the id of the tree that is ROOT with the files in ADDED set
+     *  to the given blob ids and the files in REMOVED taken out.  Only the
+     *  trees on the paths of those files are rewritten. */
+    static String update(ObjectStore objects, String root, Map<String, String> added, Set<String> removed) {
+        Map<String, String> changes = new HashMap<>(added);
+        for (String filename : removed) {
+            changes.put(filename, null);
+        }
+        return update(objects, root, changes);
+    }
+
+    /** CHANGES maps paths relative to the tree ID to their new blob ids,
+     *  or to null for files to remove. */
+    private static String update(ObjectStore objects, String id, Map<String, String> changes) {
+        if (changes.isEmpty()) {
+            return id;
+        }
+        Tree tree = new Tree(read(objects, id));
+        Map<String, Map<String, String>> subChanges = new HashMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            String path = change.getKey();
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                if (change.getValue() == null) {
+                    tree.entries.remove(path);
+                } else {
+                    tree.entries.put(path, new Entry(false, change.getValue()));
+                }
+            } else {
+                subChanges.computeIfAbsent(path.substring(0, slash), k -> new HashMap<>())
+                        .put(path.substring(slash + 1), change.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, String>> item : subChanges.entrySet()) {
+            String name = item.getKey();
+            Entry old = tree.entries.get(name);
+            if (old != null && !old.isTree && changes.get(name) != null) {
+                // A file was just added in place of the directory, whose
+                // files are all being removed.
+                continue;
+            }
+            String subId = update(objects, old != null && old.isTree ? old.id : EMPTY_ID, item.getValue());
+            if (subId.equals(EMPTY_ID)) {
+                tree.entries.remove(name);
+            } else {
+                tree.entries.put(name, new Entry(true, subId));
+            }
+        }
+        return tree.write(objects);
+    }
+
+    /** Returns the blob id of the file PATH in the tree ROOT, or null if it
+     *  has no such file. */
+    static String lookup(ObjectStore objects, String root, String path) {
+        String id = root;
+        String[] names = path.split("/");
+        for (int i = 0; i < names.length; i += 1) {
+            Entry entry = read(objects, id).entries.get(names[i]);
+            if (entry == null || entry.isTree != (i < names.length - 1)) {
+                return null;
+            }
+            id = entry.id;
+        }
+        return id;
+    }
+
+    /** Puts every file in the tree ID into FILES as (PREFIX + path, blob
+     *  id). */
+    static void flatten(ObjectStore objects, String id, String prefix, Map<String, String> files) {
+        for (Map.Entry<String, Entry> item : read(objects, id).entries.entrySet()) {
+            Entry entry = item.getValue();
+            if (entry.isTree) {
+                flatten(objects, entry.id, prefix + item.getKey() + "/", files);
+            } else {
+                files.put(prefix + item.getKey(), entry.id);
+            }
+        }
+    }
+
+    /** Puts every file that differs between the trees A and B into CHANGES
+     *  as (path, {blob id in A, blob id in B}), with null for a missing
+     *  file.  Subtrees with the same id in both are skipped unread. */
+    static void diff(ObjectStore objects, String a, String b, Map<String, String[]> changes) {
+        diff(objects, a, b, "", changes);
+    }
+
+    private static void diff(ObjectStore objects, String a, String b, String prefix,
+                             Map<String, String[]> changes) {
+        if (a.equals(b)) {
+            return;
+        }
+        Map<String, Entry> aEntries = read(objects, a).entries;
+        Map<String, Entry> bEntries = read(objects, b).entries;
+        Set<String> names = new TreeSet<>(aEntries.keySet());
+        names.addAll(bEntries.keySet());
+        for (String name : names) {
+            Entry aEntry = aEntries.get(name);
+            Entry bEntry = bEntries.get(name);
+            if (Objects.equals(aEntry, bEntry)) {
+                continue;
+            }
+            String aTree = aEntry != null && aEntry.isTree ? aEntry.id : EMPTY_ID;
+            String bTree = bEntry != null && bEntry.isTree ? bEntry.id : EMPTY_ID;
+            diff(objects, aTree, bTree, prefix + name + "/", changes);
+            String path = prefix + name;
+            String aBlob = aEntry != null && !aEntry.isTree ? aEntry.id : null;
+            String bBlob = bEntry != null && !bEntry.isTree ? bEntry.id : null;
+            if (!Objects.equals(aBlob, bBlob)) {
+                changes.put(path, new String[] {aBlob, bBlob});
+            }
+        }
+    }
+}
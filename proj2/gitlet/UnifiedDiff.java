@@ -0,0 +1,151 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/** Writes the differences between two versions of a file as a unified
+ *  diff, the way "diff -u" and git do:
+ *      --- a/<path>        (/dev/null if there was no such file)
+ *      +++ b/<path>        (/dev/null if there is no such file)
+ *      @@ -<start>,<count> +<start>,<count> @@
+ *       an unchanged line
+ *      -a removed line
+ *      +an added line
+ *  with CONTEXT unchanged lines around every change, and changes closer
+ *  together than that sharing one hunk.  Files with a NUL byte are taken
+ *  to be binary and only reported as differing.
+ *
+ *  Neither version is held in memory.  Each is read once, a line at a
+ *  time, to number its lines (see LineDiff.Interner), and once more to
+ *  print the hunks, so what is kept is an int per line and one copy of
+ *  each distinct line.
+ *
+ *  @author Colin Wang
+ */
+class UnifiedDiff {
+    static final int CONTEXT = 3;
+
+    /** Opens a version of a file. */
+    interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private final OutputStream out;
+
+    UnifiedDiff(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Writes the diff of the file PATH from OLD to NEW, where a null
+     *  source is a file that does not exist. */
+    void write(String path, Source old, Source now) throws IOException {
+        LineDiff.Interner interner = new LineDiff.Interner();
+        int[] a = number(old, interner);
+        int[] b = number(now, interner);
+        print("--- " + (old == null ? "/dev/null" : "a/" + path) + "\n");
+        print("+++ " + (now == null ? "/dev/null" : "b/" + path) + "\n");
+        if (a == null || b == null) {
+            print("Binary files differ\n");
+            return;
+        }
+        List<LineDiff.Hunk> hunks = LineDiff.diff(a, b);
+        try (LineDiff.LineReader aLines = new LineDiff.LineReader(open(old));
+             LineDiff.LineReader bLines = new LineDiff.LineReader(open(now))) {
+            int aPos = 0;
+            for (int i = 0; i < hunks.size(); ) {
+                int j = i + 1;
+                while (j < hunks.size() && hunks.get(j).aStart - hunks.get(j - 1).aEnd <= 2 * CONTEXT) {
+                    j += 1;
+                }
+                LineDiff.Hunk first = hunks.get(i);
+                LineDiff.Hunk last = hunks.get(j - 1);
+                int aFrom = Math.max(0, first.aStart - CONTEXT);
+                int aTo = Math.min(a.length, last.aEnd + CONTEXT);
+                int bFrom = first.bStart - (first.aStart - aFrom);
+                int bTo = last.bEnd + (aTo - last.aEnd);
+                // Both files are at the same unchanged line here.
+                skip(aLines, aFrom - aPos);
+                skip(bLines, aFrom - aPos);
+                print("@@ -" + range(aFrom, aTo - aFrom) + " +" + range(bFrom, bTo - bFrom) + " @@\n");
+                aPos = aFrom;
+                for (int k = i; k < j; k += 1) {
+                    LineDiff.Hunk hunk = hunks.get(k);
+                    copy(aLines, ' ', hunk.aStart - aPos, bLines);
+                    copy(aLines, '-', hunk.aEnd - hunk.aStart, null);
+                    copy(bLines, '+', hunk.bEnd - hunk.bStart, null);
+                    aPos = hunk.aEnd;
+                }
+                copy(aLines, ' ', aTo - aPos, bLines);
+                aPos = aTo;
+                i = j;
+            }
+        }
+    }
+
+    /** Returns the numbers of the lines of SOURCE, or null if it is
+     *  binary. */
+    private static int[] number(Source source, LineDiff.Interner interner) throws IOException {
+        int[] res = new int[64];
+        int n = 0;
+        try (LineDiff.LineReader lines = new LineDiff.LineReader(open(source))) {
+            while (lines.next()) {
+                byte[] line = lines.line();
+                for (int k = 0; k < lines.length(); k += 1) {
+                    if (line[k] == 0) {
+                        return null;
+                    }
+                }
+                if (n == res.length) {
+                    res = Arrays.copyOf(res, n * 2);
+                }
+                res[n] = interner.intern(line, 0, lines.length());
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(res, n);
+    }
+
+    private static InputStream open(Source source) throws IOException {
+        return source == null ? new ByteArrayInputStream(new byte[0]) : source.open();
+    }
+
+    /** Returns a hunk range as diff writes it: the first line (or the line
+     *  before, for no lines) counting from 1, and the count unless it is 1. */
+    private static String range(int start, int count) {
+        if (count == 1) {
+            return Integer.toString(start + 1);
+        }
+        return (count == 0 ? start : start + 1) + "," + count;
+    }
+
+    private static void skip(LineDiff.LineReader lines, int n) throws IOException {
+        for (int i = 0; i < n; i += 1) {
+            lines.next();
+        }
+    }
+
+    /** Prints the next N lines of LINES, each after PREFIX, and skips as
+     *  many lines of ALSO if it is not null. */
+    private void copy(LineDiff.LineReader lines, char prefix, int n, LineDiff.LineReader also) throws IOException {
+        for (int i = 0; i < n; i += 1) {
+            lines.next();
+            out.write(prefix);
+            out.write(lines.line(), 0, lines.length());
+            if (lines.length() == 0 || lines.line()[lines.length() - 1] != '\n') {
+                print("\n\\ No newline at end of file\n");
+            }
+            if (also != null) {
+                also.next();
+            }
+        }
+    }
+
+    private void print(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -63,6 +63,24 @@ class Utils {
         return sha1(vals.toArray(new Object[vals.size()]));
     }
 
+    /** Returns the 20 raw bytes of the hexadecimal SHA-1 UID ID. */
+    static byte[] rawId(String id) {
+        byte[] raw = new byte[UID_LENGTH / 2];
+        for (int i = 0; i < raw.length; i += 1) {
+            raw[i] = (byte) Integer.parseInt(id.substring(2 * i, 2 * i + 2), 16);
+        }
+        return raw;
+    }
+
+    /** Returns the hexadecimal SHA-1 UID whose raw bytes are RAW. */
+    static String hexId(byte[] raw) {
+        Formatter result = new Formatter();
+        for (byte b : raw) {
+            result.format("%02x", b);
+        }
+        return result.toString();
+    }
+
     /* FILE DELETION */
 
     /** Deletes FILE if it exists and is not a directory.  Returns true